@@ -0,0 +1,93 @@
+package com.turnquest.reportservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.turnquest.reportservice.models.ReportData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares decoding a report request body as the JSON map the endpoints used to bind against
+ * binding the same rows as a table from JSON, CBOR and Smile. With the gc profiler,
+ * gc.alloc.rate.norm is the heap allocated per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReportDataBenchmark {
+
+    @Param({"100", "10000"})
+    private int rows;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final ObjectMapper cborMapper = new CBORMapper();
+    private final ObjectMapper smileMapper = new SmileMapper();
+
+    private byte[] jsonObjects;
+    private byte[] jsonTable;
+    private byte[] cborTable;
+    private byte[] smileTable;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<Map<String, Object>> objectRows = new ArrayList<>(rows);
+        List<List<Object>> tableRows = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", (long) i);
+            row.put("customer", "Customer " + i);
+            row.put("amount", i * 1.25);
+            row.put("paid", i % 2 == 0);
+            objectRows.add(row);
+            tableRows.add(new ArrayList<>(row.values()));
+        }
+
+        Map<String, Object> table = new LinkedHashMap<>();
+        table.put(ReportData.COLUMNS_FIELD, List.of(
+                Map.of("name", "id", "type", "long"),
+                Map.of("name", "customer", "type", "string"),
+                Map.of("name", "amount", "type", "number"),
+                Map.of("name", "paid", "type", "boolean")));
+        table.put(ReportData.ROWS_FIELD, tableRows);
+
+        jsonObjects = jsonMapper.writeValueAsBytes(Map.of("title", "Invoices", "items", objectRows));
+        Map<String, Object> tablePayload = Map.of("title", "Invoices", "items", table);
+        jsonTable = jsonMapper.writeValueAsBytes(tablePayload);
+        cborTable = cborMapper.writeValueAsBytes(tablePayload);
+        smileTable = smileMapper.writeValueAsBytes(tablePayload);
+    }
+
+    @Benchmark
+    public Map<?, ?> jsonObjectsAsMap() throws IOException {
+        return jsonMapper.readValue(jsonObjects, Map.class);
+    }
+
+    @Benchmark
+    public ReportData jsonTable() throws IOException {
+        return jsonMapper.readValue(jsonTable, ReportData.class);
+    }
+
+    @Benchmark
+    public ReportData cborTable() throws IOException {
+        return cborMapper.readValue(cborTable, ReportData.class);
+    }
+
+    @Benchmark
+    public ReportData smileTable() throws IOException {
+        return smileMapper.readValue(smileTable, ReportData.class);
+    }
+}
@@ -0,0 +1,36 @@
+package com.turnquest.reportservice.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+public class CacheConfig {
+
+    /**
+     * Configures bounded caches for template metadata and content. Template content is limited by its
+     * total size rather than the number of versions, since a single template can be megabytes.
+     *
+     * @param maxTemplates The maximum number of templates whose metadata is cached.
+     * @param maxContentSize The maximum total size of cached template content, counted in chars.
+     * @return A CacheManager backed by size limited Caffeine caches.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${reports.templates.cache.max-templates:1000}") long maxTemplates,
+                                     @Value("${reports.templates.cache.max-content-size:64MB}") DataSize maxContentSize) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(maxTemplates));
+        cacheManager.registerCustomCache("templates", Caffeine.newBuilder()
+                .maximumSize(maxTemplates)
+                .build());
+        cacheManager.registerCustomCache("templateContents", Caffeine.newBuilder()
+                .maximumWeight(maxContentSize.toBytes())
+                .weigher((Object key, Object content) -> content instanceof String string ? string.length() : 1)
+                .build());
+        return cacheManager;
+    }
+}
@@ -8,6 +8,7 @@ import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -17,11 +18,13 @@ public class FirebaseConfig {
 
     /**
      * Initializes the FirebaseApp instance using service account credentials.
+     * Created on first use so that reading the credentials does not slow down startup.
      *
      * @return A FirebaseApp instance initialized with the specified credentials and storage bucket.
      * @throws IOException If there is an error reading the service account key file.
      */
     @Bean
+    @Lazy
     public FirebaseApp initializeFirebaseApp() throws IOException {
         FileInputStream serviceAccount =
                 new FileInputStream("src/main/resources/serviceAccountKey.json");
@@ -36,11 +39,13 @@ public class FirebaseConfig {
 
     /**
      * Configures and provides a Storage instance for interacting with Firebase Storage.
+     * Created on first use so that reading the credentials does not slow down startup.
      *
      * @return A Storage instance configured with the specified credentials.
      * @throws IOException If there is an error reading the service account key file.
      */
     @Bean
+    @Lazy
     public Storage storage() throws IOException {
         FileInputStream serviceAccount =
                 new FileInputStream("src/main/resources/serviceAccountKey.json");
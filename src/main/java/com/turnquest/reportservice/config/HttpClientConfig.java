@@ -0,0 +1,28 @@
+package com.turnquest.reportservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class HttpClientConfig {
+
+    /**
+     * Configures and provides the HttpClient shared by all outgoing requests, so connections are
+     * pooled and HTTP/2 connections are multiplexed across concurrent fetches.
+     *
+     * @param connectTimeout The maximum time to wait for a connection to be established.
+     * @return An HttpClient preferring HTTP/2 with the configured connect timeout.
+     */
+    @Bean
+    public HttpClient httpClient(@Value("${reports.url-templates.connect-timeout:PT5S}") Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+}
@@ -0,0 +1,51 @@
+package com.turnquest.reportservice.config;
+
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.cache.AlwaysValidCacheEntryValidity;
+import org.thymeleaf.cache.ICacheEntryValidity;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.AbstractTemplateResolver;
+import org.thymeleaf.templateresource.ITemplateResource;
+import org.thymeleaf.templateresource.StringTemplateResource;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves templates that have already been prepared by the renderer. The template name carries
+ * the version key and the source is passed as a resolution attribute, so the engine caches the
+ * parsed template once per version instead of parsing the source on every render.
+ */
+public class PreparedTemplateResolver extends AbstractTemplateResolver {
+
+    public static final String NAME_PREFIX = "prepared:";
+    public static final String SOURCE_ATTRIBUTE = "preparedSource";
+
+    public PreparedTemplateResolver() {
+        setResolvablePatterns(Set.of(NAME_PREFIX + "*"));
+        setCacheable(true);
+    }
+
+    @Override
+    protected ITemplateResource computeTemplateResource(IEngineConfiguration configuration, String ownerTemplate,
+                                                        String template, Map<String, Object> templateResolutionAttributes) {
+        Object source = templateResolutionAttributes == null ? null : templateResolutionAttributes.get(SOURCE_ATTRIBUTE);
+        if (source == null) {
+            throw new IllegalStateException("No source given for prepared template " + template);
+        }
+        return new StringTemplateResource((String) source);
+    }
+
+    @Override
+    protected TemplateMode computeTemplateMode(IEngineConfiguration configuration, String ownerTemplate,
+                                               String template, Map<String, Object> templateResolutionAttributes) {
+        return TemplateMode.HTML;
+    }
+
+    @Override
+    protected ICacheEntryValidity computeValidity(IEngineConfiguration configuration, String ownerTemplate,
+                                                  String template, Map<String, Object> templateResolutionAttributes) {
+        // Versions are immutable, so a parsed template never goes stale
+        return AlwaysValidCacheEntryValidity.INSTANCE;
+    }
+}
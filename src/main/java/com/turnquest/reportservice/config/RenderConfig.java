@@ -0,0 +1,24 @@
+package com.turnquest.reportservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class RenderConfig {
+
+    /**
+     * Configures the executor that runs Thymeleaf rendering while a downstream converter consumes its output.
+     *
+     * @return An ExecutorService backed by a cached pool of daemon render threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService renderExecutor() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("report-render-");
+        threadFactory.setDaemon(true);
+        return Executors.newCachedThreadPool(threadFactory);
+    }
+}
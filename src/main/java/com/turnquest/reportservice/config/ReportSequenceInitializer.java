@@ -0,0 +1,35 @@
+package com.turnquest.reportservice.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves generated_reports_seq past the ids already in generated_reports. Databases created while
+ * the table used identity ids get the sequence starting at 1, which would hand out ids of existing
+ * rows. Runs after the schema update and before any report metadata is written.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class ReportSequenceInitializer {
+
+    // Must match the allocationSize of GeneratedReport.id, Hibernate hands out the block below each sequence value
+    private static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void alignSequence() {
+        Long next = jdbcTemplate.queryForObject(
+                "select setval('generated_reports_seq', greatest("
+                        + "(select coalesce(max(id), 0) from generated_reports) + ?, "
+                        + "(select last_value from generated_reports_seq)), true)",
+                Long.class, ALLOCATION_SIZE);
+        log.debug("generated_reports_seq is at {}", next);
+    }
+}
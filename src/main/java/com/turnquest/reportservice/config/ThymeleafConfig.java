@@ -11,14 +11,30 @@ public class ThymeleafConfig {
     /**
      * Configures and provides a TemplateEngine bean for processing Thymeleaf templates.
      *
-     * @return A TemplateEngine instance configured with a StringTemplateResolver.
+     * Prepared template versions are resolved first so their parsed form is cached, anything else
+     * is processed as a template string.
+     *
+     * @return A TemplateEngine instance configured with a PreparedTemplateResolver and a StringTemplateResolver.
      */
     @Bean
     public TemplateEngine templateEngine() {
         TemplateEngine templateEngine = new TemplateEngine();
-        templateEngine.setTemplateResolver(stringTemplateResolver());
+        templateEngine.addTemplateResolver(preparedTemplateResolver());
+        templateEngine.addTemplateResolver(stringTemplateResolver());
         return templateEngine;
     }
+
+    /**
+     * Configures and provides a PreparedTemplateResolver bean for resolving prepared template versions.
+     *
+     * @return A PreparedTemplateResolver instance that caches parsed templates per version.
+     */
+    @Bean
+    public PreparedTemplateResolver preparedTemplateResolver() {
+        PreparedTemplateResolver preparedTemplateResolver = new PreparedTemplateResolver();
+        preparedTemplateResolver.setOrder(1);
+        return preparedTemplateResolver;
+    }
     /**
      * Configures and provides a StringTemplateResolver bean for resolving Thymeleaf templates from strings.
      *
@@ -29,6 +45,7 @@ public class ThymeleafConfig {
         StringTemplateResolver stringTemplateResolver = new StringTemplateResolver();
         stringTemplateResolver.setTemplateMode("HTML");
         stringTemplateResolver.setCacheable(false);
+        stringTemplateResolver.setOrder(2);
         return stringTemplateResolver;
     }
 }
\ No newline at end of file
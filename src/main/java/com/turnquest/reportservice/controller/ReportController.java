@@ -1,16 +1,41 @@
 package com.turnquest.reportservice.controller;
 
+import com.turnquest.reportservice.models.GeneratedReport;
+import com.turnquest.reportservice.models.ReportData;
+import com.turnquest.reportservice.models.ReportFormat;
 import com.turnquest.reportservice.service.ExcelGenerationService;
 import com.turnquest.reportservice.service.WordGenerationService;
+import com.turnquest.reportservice.service.impl.MultiFormatReportService;
 import com.turnquest.reportservice.service.impl.PDFGenerationServiceImpl;
+import com.turnquest.reportservice.service.impl.ReportArtifactStore;
+import com.turnquest.reportservice.service.impl.ReportServiceImpl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @RestController
 @RequestMapping("/reports")
@@ -20,20 +45,23 @@ public class ReportController {
     private final PDFGenerationServiceImpl pdfGenerationService;
     private final ExcelGenerationService excelGenerationService;
     private final WordGenerationService wordGenerationService;
+    private final ReportServiceImpl reportService;
+    private final ReportArtifactStore artifactStore;
+    private final MultiFormatReportService multiFormatReportService;
 
     /**
      * Endpoint to generate a report based on a template stored in Firebase.
      *
      * @param templateName The name of the template to use for generating the report.
      * @param type The type of report to generate (pdf, excel, word).
-     * @param data A map containing the data to populate the template.
+     * @param data The data to populate the template, as JSON, CBOR or Smile.
      * @return A ResponseEntity containing the generated report as a byte array and appropriate headers for file download.
      * @throws Exception If there is an error during report generation.
      */
     @PostMapping("/generate/from-template")
     public ResponseEntity<byte[]> generateReportFromTemplate(@RequestParam("templateName") String templateName,
                                                              @RequestParam("type") String type,
-                                                             @RequestBody Map<String, Object> data) throws Exception {
+                                                             @RequestBody ReportData data) throws Exception {
         System.out.println("templateName: " + templateName);
         try {
             byte[] fileContent;
@@ -60,8 +88,12 @@ public class ReportController {
                     throw new IllegalArgumentException("Unsupported file type: " + type);
             }
 
+            GeneratedReport report = reportService.saveReport(fileContent, templateName, ReportFormat.fromType(type), data);
+
             return ResponseEntity.ok()
                     .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+                    .header(HttpHeaders.CONTENT_LOCATION, "/reports/artifacts/" + report.getContentHash())
+                    .eTag(report.getContentHash())
                     .contentType(mediaType)
                     .body(fileContent);
 
@@ -70,18 +102,57 @@ public class ReportController {
         }
     }
 
+    /**
+     * Endpoint to generate a report in several formats at once, based on a template stored in Firebase.
+     * The template is evaluated once and the result is converted to every requested format in parallel.
+     *
+     * @param templateName The name of the template to use for generating the report.
+     * @param types The types of report to generate (pdf, excel, word), comma separated or repeated.
+     * @param data The data to populate the template, as JSON, CBOR or Smile.
+     * @return A ResponseEntity containing a ZIP archive with one entry per generated format.
+     * @throws IOException If there is an error during report generation.
+     */
+    @PostMapping("/generate/multi")
+    public ResponseEntity<byte[]> generateReportInFormats(@RequestParam("templateName") String templateName,
+                                                          @RequestParam("types") List<String> types,
+                                                          @RequestBody ReportData data) throws IOException {
+        Set<ReportFormat> formats = EnumSet.noneOf(ReportFormat.class);
+        for (String type : types) {
+            formats.add(ReportFormat.fromType(type.trim()));
+        }
+
+        Map<ReportFormat, byte[]> reports = multiFormatReportService.generateFromTemplate(templateName, formats, data);
+
+        // Generated documents are already compressed, so the archive favours speed over size
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.setLevel(Deflater.BEST_SPEED);
+            for (Map.Entry<ReportFormat, byte[]> report : reports.entrySet()) {
+                reportService.saveReport(report.getValue(), templateName, report.getKey(), data);
+                zip.putNextEntry(new ZipEntry(templateName + "." + report.getKey().getExtension()));
+                zip.write(report.getValue());
+                zip.closeEntry();
+            }
+        }
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + templateName + ".zip")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(archive.toByteArray());
+    }
+
     /**
      * Endpoint to generate a report based on a template provided as a file upload.
      *
      * @param file The uploaded file containing the template to use for generating the report.
      * @param type The type of report to generate (pdf, excel, word).
-     * @param data A map containing the data to populate the template.
+     * @param data The data to populate the template, as JSON, CBOR or Smile.
      * @return A ResponseEntity containing the generated report as a byte array and appropriate headers for file download.
      */
     @PostMapping("/generate/from-file")
     public ResponseEntity<byte[]> generateReportFromFile(@RequestParam("file") MultipartFile file,
                                                          @RequestParam("type") String type,
-                                                         @RequestBody Map<String, Object> data) {
+                                                         @RequestBody ReportData data) {
         try {
             InputStream fileStream = file.getInputStream();
             byte[] fileContent;
@@ -123,13 +194,13 @@ public class ReportController {
      *
      * @param url The URL of the template to use for generating the report.
      * @param type The type of report to generate (pdf, excel, word).
-     * @param data A map containing the data to populate the template.
+     * @param data The data to populate the template, as JSON, CBOR or Smile.
      * @return A ResponseEntity containing the generated report as a byte array and appropriate headers for file download.
      */
     @PostMapping("/generate/from-url")
     public ResponseEntity<byte[]> generateReportFromUrl(@RequestParam("url") String url,
                                                         @RequestParam("type") String type,
-                                                        @RequestBody Map<String, Object> data) {
+                                                        @RequestBody ReportData data) {
         try {
             byte[] fileContent;
             String fileName;
@@ -164,4 +235,122 @@ public class ReportController {
             return ResponseEntity.status(500).body(null);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint to download a previously generated report from the artifact store.
+     * Supports conditional requests through If-None-Match and resumable downloads through single byte ranges.
+     *
+     * @param contentHash The SHA-256 hash of the report content, as returned in the ETag of the generate endpoints.
+     * @param request The current request, used to read conditional and range headers.
+     * @param response The response the report content is written to.
+     * @throws IOException If there is an error reading the report or writing the response.
+     */
+    @GetMapping("/artifacts/{contentHash}")
+    public void downloadReport(@PathVariable String contentHash,
+                               HttpServletRequest request,
+                               HttpServletResponse response) throws IOException {
+        GeneratedReport report = reportService.findByContentHash(contentHash).orElse(null);
+        if (report == null) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+
+        Path blobPath = artifactStore.resolve(contentHash);
+        long length;
+        try {
+            length = Files.size(blobPath);
+        } catch (NoSuchFileException e) {
+            // Collected since it was looked up
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        String eTag = "\"" + contentHash + "\"";
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (matchesETag(request.getHeader(HttpHeaders.IF_NONE_MATCH), eTag)) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rangeHeader != null && (ifRange == null || ifRange.equals(eTag))) {
+            List<HttpRange> ranges = parseRanges(rangeHeader);
+            // Multiple ranges are answered with the full content
+            if (ranges.size() == 1) {
+                try {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    return;
+                }
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+        }
+
+        ReportFormat format = report.getReportType();
+        response.setContentType(format != null ? format.getContentType() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + report.getReportName());
+        response.setContentLengthLong(end - start + 1);
+        transferFile(blobPath, start, end - start + 1, request, response);
+    }
+
+    /**
+     * Sends part of a file without copying it through the heap. Tomcat's sendfile support is used
+     * when available, otherwise the file channel transfers directly to the response channel.
+     */
+    private void transferFile(Path path, long start, long count, HttpServletRequest request,
+                              HttpServletResponse response) throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", path.toAbsolutePath().toString());
+            request.setAttribute("org.apache.tomcat.sendfile.start", start);
+            request.setAttribute("org.apache.tomcat.sendfile.end", start + count);
+            return;
+        }
+
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel responseChannel = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = fileChannel.transferTo(position, remaining, responseChannel);
+                if (transferred <= 0) {
+                    throw new IOException("Report truncated while sending");
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<HttpRange> parseRanges(String rangeHeader) {
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored
+            return List.of();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.turnquest.reportservice.controller;
+
+import com.turnquest.reportservice.models.ReportSchedule;
+import com.turnquest.reportservice.service.impl.ReportScheduler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/schedules")
+@RequiredArgsConstructor
+public class ReportScheduleController {
+
+    private final ReportScheduler reportScheduler;
+
+    /**
+     * Endpoint to create a recurring report schedule.
+     *
+     * @param schedule The schedule, with a template name, report type, cron expression and either a
+     *                 data snapshot or a data source URL.
+     * @return A ResponseEntity containing the saved ReportSchedule, including its first run time.
+     */
+    @PostMapping
+    public ResponseEntity<ReportSchedule> createSchedule(@RequestBody ReportSchedule schedule) {
+        return ResponseEntity.ok(reportScheduler.createSchedule(schedule));
+    }
+
+    /**
+     * Endpoint to list every report schedule together with the outcome of its last run.
+     *
+     * @return A ResponseEntity containing all report schedules.
+     */
+    @GetMapping
+    public ResponseEntity<List<ReportSchedule>> getSchedules() {
+        return ResponseEntity.ok(reportScheduler.getSchedules());
+    }
+
+    /**
+     * Endpoint to delete a report schedule.
+     *
+     * @param id The id of the schedule to delete.
+     * @return A 204 No Content response, or a 404 Not Found response if the schedule does not exist.
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSchedule(@PathVariable Long id) {
+        return reportScheduler.deleteSchedule(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -1,6 +1,7 @@
 package com.turnquest.reportservice.controller;
 
 import com.turnquest.reportservice.models.Template;
+import com.turnquest.reportservice.models.TemplateVersion;
 import com.turnquest.reportservice.service.impl.TemplateServiceImpl;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -8,7 +9,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.List;
 
 @RestController
 @RequestMapping("/templates")
@@ -28,8 +29,7 @@ public class TemplateController {
     @PostMapping("/upload")
     public ResponseEntity<Template> uploadTemplate(@RequestParam("name") String name,
                                                    @RequestParam("file") MultipartFile file) throws IOException {
-        InputStream templateStream = file.getInputStream();
-        Template template = templateService.saveTemplate(name, templateStream);
+        Template template = templateService.saveTemplate(name, file);
         return ResponseEntity.ok(template);
     }
 
@@ -45,4 +45,29 @@ public class TemplateController {
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint to list every uploaded version of a template.
+     *
+     * @param name The name of the template.
+     * @return A ResponseEntity containing the versions of the template, newest first.
+     */
+    @GetMapping("/{name}/versions")
+    public ResponseEntity<List<TemplateVersion>> getTemplateVersions(@PathVariable String name) {
+        return ResponseEntity.ok(templateService.getTemplateVersions(name));
+    }
+
+    /**
+     * Endpoint to make an earlier version the current version of a template.
+     *
+     * @param name The name of the template.
+     * @param version The version to activate.
+     * @return A ResponseEntity containing the updated Template, or a 404 Not Found response if the template or version does not exist.
+     */
+    @PostMapping("/{name}/versions/{version}/activate")
+    public ResponseEntity<Template> activateTemplateVersion(@PathVariable String name, @PathVariable Integer version) {
+        return templateService.activateVersion(name, version)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
@@ -7,11 +7,18 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
-@Table(name = "generated_reports")
+@Table(name = "generated_reports",
+        uniqueConstraints = @UniqueConstraint(name = "uk_generated_reports_data_hash_template_type",
+                columnNames = {"data_hash", "template_name", "report_type"}),
+        indexes = {
+                @Index(name = "idx_generated_reports_content_hash", columnList = "content_hash"),
+                @Index(name = "idx_generated_reports_generated_at", columnList = "generated_at")
+        })
 public class GeneratedReport {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "generated_reports_seq")
+    @SequenceGenerator(name = "generated_reports_seq", sequenceName = "generated_reports_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "report_name", nullable = false)
@@ -23,6 +30,16 @@ public class GeneratedReport {
     @Column(name = "data_hash", nullable = false)
     private String dataHash;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_type")
+    private ReportFormat reportType;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash; // SHA-256 of the report bytes, the key of the blob in the artifact store
+
+    @Column(name = "size_bytes")
+    private Long sizeBytes;
+
     @Column(name = "local_file_path")
     private String localFilePath;
 
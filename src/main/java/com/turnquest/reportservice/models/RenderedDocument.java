@@ -0,0 +1,34 @@
+package com.turnquest.reportservice.models;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The HTML output of a single template evaluation, shared by the converters of every requested format.
+ *
+ * @param html The rendered HTML.
+ */
+public record RenderedDocument(String html) {
+
+    /**
+     * Opens the rendered HTML as UTF-8 bytes, for converters that read a stream.
+     *
+     * @return An InputStream over the UTF-8 encoded HTML.
+     */
+    public InputStream openStream() {
+        return new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Writes the rendered HTML to a Writer, for converters that consume characters.
+     *
+     * @param writer The Writer receiving the rendered HTML.
+     * @throws IOException If the Writer fails.
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(html);
+    }
+}
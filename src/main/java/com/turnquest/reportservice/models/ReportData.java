@@ -0,0 +1,240 @@
+package com.turnquest.reportservice.models;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The data used to populate a template, as sent to the report endpoints in JSON, CBOR or Smile.
+ * <p>
+ * Any object in the payload may instead be a table of the form
+ * {@code {"@columns": [{"name": "amount", "type": "number"}, ...], "@rows": [[12.5, ...], ...]}},
+ * in either field order, which is bound to a {@link RowTable} while it is read. Table values are
+ * checked against the column types up front, so a malformed payload is rejected before any template
+ * is rendered.
+ */
+@JsonDeserialize(using = ReportData.Deserializer.class)
+public class ReportData extends LinkedHashMap<String, Object> {
+
+    public static final String COLUMNS_FIELD = "@columns";
+    public static final String ROWS_FIELD = "@rows";
+
+    public ReportData() {
+    }
+
+    public ReportData(Map<String, Object> data) {
+        super(data);
+    }
+
+    /**
+     * Reads report data straight from the parser, without building an intermediate tree.
+     */
+    public static class Deserializer extends StdDeserializer<ReportData> {
+
+        public Deserializer() {
+            super(ReportData.class);
+        }
+
+        @Override
+        public ReportData deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartObjectToken()) {
+                return (ReportData) ctxt.handleUnexpectedToken(ReportData.class, p);
+            }
+            ReportData data = new ReportData();
+            readFields(p, ctxt, data);
+            return data;
+        }
+
+        private Object readValue(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return switch (p.currentToken()) {
+                case START_OBJECT -> readObject(p, ctxt);
+                case START_ARRAY -> readArray(p, ctxt);
+                case VALUE_STRING -> p.getText();
+                case VALUE_NUMBER_INT -> p.getNumberValue();
+                case VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+                case VALUE_TRUE -> Boolean.TRUE;
+                case VALUE_FALSE -> Boolean.FALSE;
+                case VALUE_NULL -> null;
+                case VALUE_EMBEDDED_OBJECT -> p.getEmbeddedObject();
+                default -> ctxt.handleUnexpectedToken(Object.class, p);
+            };
+        }
+
+        private Object readObject(JsonParser p, DeserializationContext ctxt) throws IOException {
+            // Only the first field is needed to tell a table from a plain object
+            String first = p.nextFieldName();
+            if (COLUMNS_FIELD.equals(first) || ROWS_FIELD.equals(first)) {
+                return readTable(p, ctxt, first);
+            }
+            Map<String, Object> object = new LinkedHashMap<>();
+            if (first == null) {
+                return object;
+            }
+            p.nextToken();
+            object.put(first, readValue(p, ctxt));
+            readFields(p, ctxt, object);
+            return object;
+        }
+
+        private void readFields(JsonParser p, DeserializationContext ctxt, Map<String, Object> object) throws IOException {
+            String name;
+            while ((name = p.nextFieldName()) != null) {
+                if (COLUMNS_FIELD.equals(name) || ROWS_FIELD.equals(name)) {
+                    ctxt.reportInputMismatch(RowTable.class,
+                            "'%s' and '%s' must be the only fields of a table", COLUMNS_FIELD, ROWS_FIELD);
+                }
+                p.nextToken();
+                object.put(name, readValue(p, ctxt));
+            }
+        }
+
+        private List<Object> readArray(JsonParser p, DeserializationContext ctxt) throws IOException {
+            List<Object> array = new ArrayList<>();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                array.add(readValue(p, ctxt));
+            }
+            return array;
+        }
+
+        private RowTable readTable(JsonParser p, DeserializationContext ctxt, String first) throws IOException {
+            if (COLUMNS_FIELD.equals(first)) {
+                RowTable table = newTable(p, ctxt);
+                if (!ROWS_FIELD.equals(p.nextFieldName())) {
+                    return (RowTable) ctxt.reportInputMismatch(RowTable.class,
+                            "A table needs exactly the fields '%s' and '%s'", COLUMNS_FIELD, ROWS_FIELD);
+                }
+                readRows(p, ctxt, table);
+                expect(p, ctxt, p.nextToken(), JsonToken.END_OBJECT);
+                return table;
+            }
+
+            // The rows came first, they can only be typed once the columns are known
+            p.nextToken();
+            TokenBuffer rows = ctxt.bufferAsCopyOfValue(p);
+            if (!COLUMNS_FIELD.equals(p.nextFieldName())) {
+                return (RowTable) ctxt.reportInputMismatch(RowTable.class,
+                        "A table needs exactly the fields '%s' and '%s'", COLUMNS_FIELD, ROWS_FIELD);
+            }
+            RowTable table = newTable(p, ctxt);
+            expect(p, ctxt, p.nextToken(), JsonToken.END_OBJECT);
+            try (JsonParser rowsParser = rows.asParser(p.getCodec())) {
+                readRows(rowsParser, ctxt, table);
+            }
+            return table;
+        }
+
+        private RowTable newTable(JsonParser p, DeserializationContext ctxt) throws IOException {
+            try {
+                return new RowTable(readColumns(p, ctxt));
+            } catch (IllegalArgumentException e) {
+                return (RowTable) ctxt.reportInputMismatch(RowTable.class, e.getMessage());
+            }
+        }
+
+        /**
+         * Reads the rows array into the table, with the parser positioned on the field name before the array.
+         */
+        private void readRows(JsonParser p, DeserializationContext ctxt, RowTable table) throws IOException {
+            expect(p, ctxt, p.nextToken(), JsonToken.START_ARRAY);
+
+            List<RowTable.Column> columns = table.getColumns();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                expect(p, ctxt, p.currentToken(), JsonToken.START_ARRAY);
+                int row = table.addRow();
+                for (int column = 0; column < columns.size(); column++) {
+                    JsonToken token = p.nextToken();
+                    if (token == JsonToken.END_ARRAY) {
+                        ctxt.reportInputMismatch(RowTable.class,
+                                "Row %d has %d values, expected %d", row, column, columns.size());
+                    }
+                    readCell(p, ctxt, table, row, column, token);
+                }
+                if (p.nextToken() != JsonToken.END_ARRAY) {
+                    ctxt.reportInputMismatch(RowTable.class,
+                            "Row %d has more than %d values", row, columns.size());
+                }
+            }
+        }
+
+        private List<RowTable.Column> readColumns(JsonParser p, DeserializationContext ctxt) throws IOException {
+            expect(p, ctxt, p.nextToken(), JsonToken.START_ARRAY);
+            List<RowTable.Column> columns = new ArrayList<>();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                expect(p, ctxt, p.currentToken(), JsonToken.START_OBJECT);
+                String name = null;
+                String type = null;
+                String field;
+                while ((field = p.nextFieldName()) != null) {
+                    p.nextToken();
+                    switch (field) {
+                        case "name" -> name = p.getValueAsString();
+                        case "type" -> type = p.getValueAsString();
+                        default -> p.skipChildren();
+                    }
+                }
+                if (name == null || type == null) {
+                    ctxt.reportInputMismatch(RowTable.class, "Every column needs a name and a type");
+                }
+                columns.add(new RowTable.Column(name, RowTable.ColumnType.fromName(type)));
+            }
+            return columns;
+        }
+
+        private void readCell(JsonParser p, DeserializationContext ctxt, RowTable table,
+                              int row, int column, JsonToken token) throws IOException {
+            if (token == JsonToken.VALUE_NULL) {
+                table.setNull(row, column);
+                return;
+            }
+            RowTable.Column definition = table.getColumns().get(column);
+            switch (definition.type()) {
+                case LONG -> {
+                    if (token != JsonToken.VALUE_NUMBER_INT) {
+                        mismatch(ctxt, definition, row, token);
+                    }
+                    table.setLong(row, column, p.getLongValue());
+                }
+                case DOUBLE -> {
+                    if (!token.isNumeric()) {
+                        mismatch(ctxt, definition, row, token);
+                    }
+                    table.setDouble(row, column, p.getDoubleValue());
+                }
+                case BOOLEAN -> {
+                    if (!token.isBoolean()) {
+                        mismatch(ctxt, definition, row, token);
+                    }
+                    table.setBoolean(row, column, token == JsonToken.VALUE_TRUE);
+                }
+                case STRING -> {
+                    if (token != JsonToken.VALUE_STRING) {
+                        mismatch(ctxt, definition, row, token);
+                    }
+                    table.setString(row, column, p.getText());
+                }
+            }
+        }
+
+        private static void expect(JsonParser p, DeserializationContext ctxt, JsonToken actual,
+                                   JsonToken expected) throws IOException {
+            if (actual != expected) {
+                ctxt.reportWrongTokenException(RowTable.class, expected, "Malformed '%s' table", COLUMNS_FIELD);
+            }
+        }
+
+        private static void mismatch(DeserializationContext ctxt, RowTable.Column column, int row,
+                                     JsonToken token) throws IOException {
+            ctxt.reportInputMismatch(RowTable.class, "Row %d: column '%s' expects %s but got %s",
+                    row, column.name(), column.type().name().toLowerCase(), token);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.turnquest.reportservice.models;
+
+import org.springframework.http.MediaType;
+
+public enum ReportFormat {
+    PDF("pdf", "pdf", MediaType.APPLICATION_PDF_VALUE),
+    EXCEL("excel", "xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    WORD("word", "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+
+    private final String type;
+    private final String extension;
+    private final String contentType;
+
+    ReportFormat(String type, String extension, String contentType) {
+        this.type = type;
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Resolves a report format from the type name used by the report endpoints.
+     *
+     * @param type The type of report (pdf, excel, word), case insensitive.
+     * @return The matching ReportFormat.
+     * @throws IllegalArgumentException If the type is not supported.
+     */
+    public static ReportFormat fromType(String type) {
+        for (ReportFormat format : values()) {
+            if (format.type.equalsIgnoreCase(type)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported file type: " + type);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,51 @@
+package com.turnquest.reportservice.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "report_schedules",
+        indexes = @Index(name = "idx_report_schedules_next_run_at", columnList = "enabled, next_run_at"))
+public class ReportSchedule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "template_name", nullable = false)
+    private String templateName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "report_type", nullable = false, length = 16)
+    private ReportFormat reportType;
+
+    @Column(name = "cron", nullable = false)
+    private String cron; // Spring cron expression, e.g. "0 0 2 * * *"
+
+    @Column(name = "data_snapshot", columnDefinition = "text")
+    private String dataSnapshot; // JSON data used when no data source URL is set
+
+    @Column(name = "data_source_url")
+    private String dataSourceUrl; // URL returning the JSON data, fetched on every run
+
+    @Column(name = "enabled", nullable = false)
+    private boolean enabled = true;
+
+    @Column(name = "last_data_hash", length = 64)
+    private String lastDataHash;
+
+    @Column(name = "last_template_hash", length = 64)
+    private String lastTemplateHash;
+
+    @Column(name = "last_run_at")
+    private LocalDateTime lastRunAt;
+
+    @Column(name = "last_outcome", length = 16)
+    private String lastOutcome;
+
+    @Column(name = "next_run_at")
+    private LocalDateTime nextRunAt;
+}
@@ -0,0 +1,240 @@
+package com.turnquest.reportservice.models;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A table of rows stored column by column in primitive arrays. Templates see it as a list of
+ * maps, so {@code th:each="row : ${items}"} and {@code ${row.amount}} work as they do for a list
+ * of JSON objects, but a table holds one array per column instead of a map of boxed values per row.
+ */
+public class RowTable extends AbstractList<Map<String, Object>> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<Column> columns;
+    private final Map<String, Integer> columnIndexes;
+    private final Object[] values;
+    private final BitSet[] nulls;
+    private int size;
+
+    /**
+     * Creates an empty table with the given columns.
+     *
+     * @param columns The columns of the table, in the order row values are appended.
+     * @throws IllegalArgumentException If two columns have the same name.
+     */
+    public RowTable(List<Column> columns) {
+        this.columns = List.copyOf(columns);
+        this.columnIndexes = new LinkedHashMap<>();
+        this.values = new Object[columns.size()];
+        this.nulls = new BitSet[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            if (columnIndexes.put(column.name(), i) != null) {
+                throw new IllegalArgumentException("Duplicate column: " + column.name());
+            }
+            values[i] = column.type().newArray(INITIAL_CAPACITY);
+            nulls[i] = new BitSet();
+        }
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Row " + index + " of " + size);
+        }
+        return new Row(index);
+    }
+
+    /**
+     * Starts a new row. Every column of the row must then be set, in column order, through the typed setters.
+     *
+     * @return The index of the new row.
+     */
+    public int addRow() {
+        if (size == capacity()) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = columns.get(i).type().grow(values[i], Math.max(INITIAL_CAPACITY, size * 2));
+            }
+        }
+        return size++;
+    }
+
+    public void setLong(int row, int column, long value) {
+        ((long[]) values[column])[row] = value;
+    }
+
+    public void setDouble(int row, int column, double value) {
+        ((double[]) values[column])[row] = value;
+    }
+
+    public void setBoolean(int row, int column, boolean value) {
+        ((boolean[]) values[column])[row] = value;
+    }
+
+    public void setString(int row, int column, String value) {
+        ((String[]) values[column])[row] = value;
+    }
+
+    public void setNull(int row, int column) {
+        nulls[column].set(row);
+    }
+
+    /**
+     * Returns a single value, boxing it only for the caller.
+     *
+     * @param row The index of the row.
+     * @param column The index of the column.
+     * @return The value, or null if the value is missing.
+     */
+    public Object getValue(int row, int column) {
+        if (nulls[column].get(row)) {
+            return null;
+        }
+        return switch (columns.get(column).type()) {
+            case LONG -> ((long[]) values[column])[row];
+            case DOUBLE -> ((double[]) values[column])[row];
+            case BOOLEAN -> ((boolean[]) values[column])[row];
+            case STRING -> ((String[]) values[column])[row];
+        };
+    }
+
+    private int capacity() {
+        return values.length == 0 ? Integer.MAX_VALUE : columns.get(0).type().length(values[0]);
+    }
+
+    /**
+     * A column of a RowTable.
+     *
+     * @param name The name templates use to read the column from a row.
+     * @param type The type of every value in the column.
+     */
+    public record Column(String name, ColumnType type) {
+    }
+
+    public enum ColumnType {
+        LONG, DOUBLE, BOOLEAN, STRING;
+
+        /**
+         * Resolves a column type from the name used in request payloads.
+         *
+         * @param name The type name (int, long, number, double, boolean, string), case insensitive.
+         * @return The matching ColumnType.
+         * @throws IllegalArgumentException If the type is not supported.
+         */
+        public static ColumnType fromName(String name) {
+            return switch (name.toLowerCase()) {
+                case "int", "integer", "long" -> LONG;
+                case "number", "double" -> DOUBLE;
+                case "boolean" -> BOOLEAN;
+                case "string" -> STRING;
+                default -> throw new IllegalArgumentException("Unsupported column type: " + name);
+            };
+        }
+
+        private Object newArray(int capacity) {
+            return switch (this) {
+                case LONG -> new long[capacity];
+                case DOUBLE -> new double[capacity];
+                case BOOLEAN -> new boolean[capacity];
+                case STRING -> new String[capacity];
+            };
+        }
+
+        private Object grow(Object array, int capacity) {
+            return switch (this) {
+                case LONG -> Arrays.copyOf((long[]) array, capacity);
+                case DOUBLE -> Arrays.copyOf((double[]) array, capacity);
+                case BOOLEAN -> Arrays.copyOf((boolean[]) array, capacity);
+                case STRING -> Arrays.copyOf((String[]) array, capacity);
+            };
+        }
+
+        private int length(Object array) {
+            return switch (this) {
+                case LONG -> ((long[]) array).length;
+                case DOUBLE -> ((double[]) array).length;
+                case BOOLEAN -> ((boolean[]) array).length;
+                case STRING -> ((String[]) array).length;
+            };
+        }
+    }
+
+    /**
+     * A read-only map view of a single row.
+     */
+    private final class Row extends AbstractMap<String, Object> {
+
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        @Override
+        public Object get(Object key) {
+            Integer column = columnIndexes.get(key);
+            return column == null ? null : getValue(row, column);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return columnIndexes.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return columns.size();
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int column;
+
+                        @Override
+                        public boolean hasNext() {
+                            return column < columns.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int current = column++;
+                            return new SimpleImmutableEntry<>(columns.get(current).name(), getValue(row, current));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return columns.size();
+                }
+            };
+        }
+    }
+}
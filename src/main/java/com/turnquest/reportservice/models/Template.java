@@ -1,19 +1,30 @@
 package com.turnquest.reportservice.models;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
 
 @Entity
 @Data
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_template_name", columnNames = "name"))
 public class Template {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(nullable = false)
     private String name;
     private String firebaseUrl; // URL where the template is stored in Firebase
-}
\ No newline at end of file
+
+    private Integer currentVersion; // Version in template_versions that renders use
+
+    @Column(length = 64)
+    private String contentHash; // SHA-256 of the current version, computed while it is uploaded
+    private Long sizeBytes;
+}
@@ -0,0 +1,36 @@
+package com.turnquest.reportservice.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "template_versions",
+        uniqueConstraints = @UniqueConstraint(name = "uk_template_versions_name_version",
+                columnNames = {"template_name", "version"}))
+public class TemplateVersion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "template_name", nullable = false)
+    private String templateName;
+
+    @Column(name = "version", nullable = false)
+    private Integer version;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash; // SHA-256 of the template file, also the name of its immutable file
+
+    @Column(name = "size_bytes", nullable = false)
+    private Long sizeBytes;
+
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
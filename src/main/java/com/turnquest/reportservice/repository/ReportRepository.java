@@ -1,10 +1,28 @@
 package com.turnquest.reportservice.repository;
 
 import com.turnquest.reportservice.models.GeneratedReport;
+import com.turnquest.reportservice.models.ReportFormat;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface ReportRepository extends JpaRepository<GeneratedReport, Long> {
-    Optional<GeneratedReport> findByDataHashAndTemplateName(String dataHash, String templateName);
-}
\ No newline at end of file
+    Optional<GeneratedReport> findByDataHashAndTemplateNameAndReportType(String dataHash, String templateName,
+                                                                         ReportFormat reportType);
+
+    List<GeneratedReport> findByDataHashIn(Collection<String> dataHashes);
+
+    Optional<GeneratedReport> findFirstByContentHash(String contentHash);
+
+    boolean existsByContentHash(String contentHash);
+
+    List<GeneratedReport> findByOrderByGeneratedAtAsc(Pageable pageable);
+
+    @Query("select distinct r.contentHash from GeneratedReport r where r.contentHash is not null")
+    Set<String> findAllContentHashes();
+}
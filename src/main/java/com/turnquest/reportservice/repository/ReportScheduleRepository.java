@@ -0,0 +1,41 @@
+package com.turnquest.reportservice.repository;
+
+import com.turnquest.reportservice.models.ReportSchedule;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ReportScheduleRepository extends JpaRepository<ReportSchedule, Long> {
+    List<ReportSchedule> findByEnabledTrueAndNextRunAtLessThanEqualOrderByNextRunAtAsc(LocalDateTime now,
+                                                                                     Pageable pageable);
+
+    // Only succeeds for the one caller that still sees the run time it read, so a run is claimed once
+    @Transactional
+    @Modifying
+    @Query("update ReportSchedule s set s.nextRunAt = :next where s.id = :id and s.nextRunAt = :previous")
+    int claimRun(@Param("id") Long id, @Param("previous") LocalDateTime previous, @Param("next") LocalDateTime next);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportSchedule s set s.lastRunAt = :lastRunAt, s.lastOutcome = :lastOutcome where s.id = :id")
+    int recordRun(@Param("id") Long id, @Param("lastRunAt") LocalDateTime lastRunAt,
+                  @Param("lastOutcome") String lastOutcome);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportSchedule s set s.lastDataHash = :lastDataHash, s.lastTemplateHash = :lastTemplateHash "
+            + "where s.id = :id")
+    int recordInputs(@Param("id") Long id, @Param("lastDataHash") String lastDataHash,
+                     @Param("lastTemplateHash") String lastTemplateHash);
+
+    @Transactional
+    @Modifying
+    @Query("update ReportSchedule s set s.enabled = false where s.id = :id")
+    int disable(@Param("id") Long id);
+}
@@ -2,7 +2,13 @@ package com.turnquest.reportservice.repository;
 
 import com.turnquest.reportservice.models.Template;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface TemplateRepository extends JpaRepository<Template, Long> {
     Template findByName(String name);
+
+    // Serialises writers of one template until the transaction ends, also for names without a row yet
+    @Query(value = "select count(*) from (select pg_advisory_xact_lock(hashtext(:name))) as locked", nativeQuery = true)
+    long lockName(@Param("name") String name);
 }
@@ -0,0 +1,17 @@
+package com.turnquest.reportservice.repository;
+
+import com.turnquest.reportservice.models.TemplateVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface TemplateVersionRepository extends JpaRepository<TemplateVersion, Long> {
+    List<TemplateVersion> findByTemplateNameOrderByVersionDesc(String templateName);
+
+    Optional<TemplateVersion> findFirstByTemplateNameOrderByVersionDesc(String templateName);
+
+    Optional<TemplateVersion> findByTemplateNameAndVersion(String templateName, Integer version);
+
+    boolean existsByTemplateNameAndContentHash(String templateName, String contentHash);
+}
@@ -1,31 +1,29 @@
 package com.turnquest.reportservice.service.impl;
 
 import com.lowagie.text.DocumentException;
+import com.turnquest.reportservice.models.RenderedDocument;
 import com.turnquest.reportservice.models.Template;
 import com.turnquest.reportservice.service.ExcelGenerationService;
+import com.turnquest.reportservice.util.TemplateUtils;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.io.*;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @Service
 public class ExcelGenerationServiceImpl implements ExcelGenerationService {
-    private final TemplateEngine templateEngine;
+    private final TemplateRenderer templateRenderer;
     private final TemplateServiceImpl templateService;
-    private final FirebaseService firebaseService;
+    private final UrlTemplateFetcher urlTemplateFetcher;
 
-    public ExcelGenerationServiceImpl(TemplateEngine templateEngine,
+    public ExcelGenerationServiceImpl(TemplateRenderer templateRenderer,
                                       TemplateServiceImpl templateService,
-                                      FirebaseService firebaseService) {
-        this.templateEngine = templateEngine;
+                                      UrlTemplateFetcher urlTemplateFetcher) {
+        this.templateRenderer = templateRenderer;
         this.templateService = templateService;
-        this.firebaseService = firebaseService;
+        this.urlTemplateFetcher = urlTemplateFetcher;
     }
 
     /**
@@ -40,9 +38,21 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
     public byte[] generateExcelFromTemplate(String templateName, Map<String, Object> data) throws IOException, DocumentException {
         Template template = templateService.getTemplateByName(templateName)
                 .orElseThrow(() -> new IllegalArgumentException("Template not found"));
+        // Pin the current version for the whole render
+        return generateExcelFromTemplate(template, data);
+    }
 
-        InputStream templateStream = new ByteArrayInputStream(firebaseService.downloadFromFirebase(template.getFirebaseUrl()));
-        return generateExcelFromTemplate(templateStream, data);
+    /**
+     * Generates an Excel file based on a specific version of a stored template.
+     *
+     * @param template The template version to use for generating the Excel file.
+     * @param data A map containing the data to populate the template.
+     * @return A byte array representing the generated Excel file.
+     * @throws IOException If there is an error reading the template or writing the Excel file.
+     * @throws DocumentException If there is an error processing the template or generating the Excel file.
+     */
+    public byte[] generateExcelFromTemplate(Template template, Map<String, Object> data) throws IOException, DocumentException {
+        return generateExcelFromHtml(template.getContentHash(), templateService.getTemplateContent(template), data);
     }
 
     /**
@@ -68,8 +78,8 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
      * @throws DocumentException If there is an error processing the template or generating the Excel file.
      */
     public byte[] generateExcelFromUrl(String url, Map<String, Object> data) throws IOException, DocumentException {
-        InputStream inputStream = new URL(url).openStream();
-        return generateExcelFromTemplate(inputStream, data);
+        UrlTemplateFetcher.FetchedTemplate template = urlTemplateFetcher.fetch(url);
+        return generateExcelFromHtml(template.key(), template.content(), data);
     }
 
     /**
@@ -82,25 +92,49 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
      */
     public byte[] generateExcelFromTemplate(InputStream templateStream, Map<String, Object> data) throws IOException {
         // Read template as string
-        String htmlContent = new BufferedReader(new InputStreamReader(templateStream, StandardCharsets.UTF_8))
-                .lines()
-                .reduce("", (accumulator, actual) -> accumulator + actual);
+        String htmlContent = TemplateUtils.readTemplate(templateStream);
+        return generateExcelFromHtml(null, htmlContent, data);
+    }
+
+    /**
+     * Helper method to generate an Excel file from template content and data.
+     *
+     * @param templateKey The key of the template version being rendered, or null for ad-hoc templates.
+     * @param htmlContent The Thymeleaf template content to use for generating the Excel file.
+     * @param data A map containing the data to populate the template.
+     * @return A byte array representing the generated Excel file.
+     * @throws IOException If there is an error processing the template or writing the Excel file.
+     */
+    private byte[] generateExcelFromHtml(String templateKey, String htmlContent, Map<String, Object> data) throws IOException {
+        // Process Thymeleaf template with data, writing each line of output into its own row
+        return writeWorkbook(rowWriter -> templateRenderer.render(templateKey, htmlContent, data, rowWriter));
+    }
 
-        // Process Thymeleaf template with data
-        Context context = new Context();
-        context.setVariables(data);
-        String processedHtml = templateEngine.process(htmlContent, context);
+    /**
+     * Generates an Excel file from a template that has already been rendered.
+     *
+     * @param document The rendered template output.
+     * @return A byte array representing the generated Excel file.
+     * @throws IOException If there is an error writing the Excel file.
+     */
+    public byte[] generateExcelFromRendered(RenderedDocument document) throws IOException {
+        return writeWorkbook(document::writeTo);
+    }
 
+    /**
+     * Helper method to build an Excel file from rendered HTML, one row per line of output.
+     *
+     * @param html Writes the rendered HTML to the row writer.
+     * @return A byte array representing the generated Excel file.
+     * @throws IOException If there is an error writing the Excel file.
+     */
+    private byte[] writeWorkbook(HtmlWriter html) throws IOException {
         // Create a new Excel document
         Workbook workbook = new XSSFWorkbook();
         Sheet sheet = workbook.createSheet("Report");
 
-        // Write the processed HTML content into the Excel document
-        int rowNum = 0;
-        for (String line : processedHtml.split("\n")) {
-            Row row = sheet.createRow(rowNum++);
-            Cell cell = row.createCell(0);
-            cell.setCellValue(line);
+        try (SheetRowWriter rowWriter = new SheetRowWriter(sheet)) {
+            html.writeTo(rowWriter);
         }
 
         // Write the document to a byte array
@@ -110,4 +144,71 @@ public class ExcelGenerationServiceImpl implements ExcelGenerationService {
 
         return excelStream.toByteArray();
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface HtmlWriter {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writer that appends every line written to it as a new row of a sheet, matching the rows
+     * produced by splitting the complete output on newlines.
+     */
+    private static final class SheetRowWriter extends Writer {
+        private final Sheet sheet;
+        private final StringBuilder line = new StringBuilder();
+        private int rowNum = 0;
+        private int pendingEmptyRows = 0;
+
+        private SheetRowWriter(Sheet sheet) {
+            this.sheet = sheet;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            int lineStart = offset;
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    line.append(buffer, lineStart, i - lineStart);
+                    endLine();
+                    lineStart = i + 1;
+                }
+            }
+            line.append(buffer, lineStart, end - lineStart);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            if (!line.isEmpty()) {
+                endLine();
+            } else if (rowNum == 0 && pendingEmptyRows == 0) {
+                // An empty document still yields a single empty row
+                appendRow("");
+            }
+        }
+
+        private void endLine() {
+            if (line.isEmpty()) {
+                // Trailing empty lines are dropped, so only emit these once more content follows
+                pendingEmptyRows++;
+            } else {
+                for (; pendingEmptyRows > 0; pendingEmptyRows--) {
+                    appendRow("");
+                }
+                appendRow(line.toString());
+            }
+            line.setLength(0);
+        }
+
+        private void appendRow(String value) {
+            Row row = sheet.createRow(rowNum++);
+            Cell cell = row.createCell(0);
+            cell.setCellValue(value);
+        }
+    }
+}
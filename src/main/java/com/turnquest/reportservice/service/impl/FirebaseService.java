@@ -1,13 +1,11 @@
 package com.turnquest.reportservice.service.impl;
 
-import com.google.auth.oauth2.ServiceAccountCredentials;
 import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.Storage;
-import com.google.cloud.storage.StorageOptions;
 import com.google.firebase.cloud.StorageClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -17,21 +15,16 @@ import java.nio.file.Paths;
 @Service
 public class FirebaseService {
 
-    private final Storage storage;
+    private final ObjectProvider<Storage> storage;
 
     /**
-     * Initializes the Firebase Storage client using service account credentials.
+     * Creates the service without touching Firebase. The Storage client, and the service account
+     * credentials it is built from, are only loaded on the first download.
      *
-     * @throws IOException If there is an error reading the service account key file.
+     * @param storage Provider of the lazily initialized Storage client.
      */
-    public FirebaseService() throws IOException {
-        // Initialize the Firebase Storage client
-        FileInputStream serviceAccount =
-                new FileInputStream("src/main/resources/serviceAccountKey.json");
-        StorageOptions storageOptions = StorageOptions.newBuilder()
-                .setCredentials(ServiceAccountCredentials.fromStream(serviceAccount))
-                .build();
-        this.storage = storageOptions.getService();
+    public FirebaseService(ObjectProvider<Storage> storage) {
+        this.storage = storage;
     }
 
     /**
@@ -47,7 +40,7 @@ public class FirebaseService {
         String filePath = extractFilePathFromUrl(fileUrl);
 
         // Retrieve the file from Google Cloud Storage
-        Blob blob = storage.get(bucketName, filePath);
+        Blob blob = storage.getObject().get(bucketName, filePath);
         if (blob == null) {
             throw new IOException("File not found in Firebase");
         }
@@ -0,0 +1,88 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.models.RenderedDocument;
+import com.turnquest.reportservice.models.ReportFormat;
+import com.turnquest.reportservice.models.Template;
+import com.turnquest.reportservice.service.ExcelGenerationService;
+import com.turnquest.reportservice.service.WordGenerationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Generates the same report in several formats from a single evaluation of the template.
+ * The rendered document is converted to every requested format in parallel, so generating all
+ * formats takes about as long as the slowest converter.
+ */
+@Service
+@RequiredArgsConstructor
+public class MultiFormatReportService {
+
+    private final TemplateServiceImpl templateService;
+    private final TemplateRenderer templateRenderer;
+    private final PDFGenerationServiceImpl pdfGenerationService;
+    private final ExcelGenerationService excelGenerationService;
+    private final WordGenerationService wordGenerationService;
+    private final ExecutorService renderExecutor;
+
+    /**
+     * Generates a report in each of the given formats based on a template stored in Firebase.
+     *
+     * @param templateName The name of the template to use for generating the report.
+     * @param formats The formats to generate.
+     * @param data A map containing the data to populate the template.
+     * @return The generated report for each format, in format order.
+     * @throws IOException If there is an error reading the template or generating any of the formats.
+     * @throws IllegalArgumentException If the template does not exist.
+     */
+    public Map<ReportFormat, byte[]> generateFromTemplate(String templateName, Collection<ReportFormat> formats,
+                                                          Map<String, Object> data) throws IOException {
+        Template template = templateService.getTemplateByName(templateName)
+                .orElseThrow(() -> new IllegalArgumentException("Template not found"));
+        // Pin the current version for the whole render
+        RenderedDocument document = templateRenderer.renderDocument(
+                template.getContentHash(), templateService.getTemplateContent(template), data);
+
+        Map<ReportFormat, CompletableFuture<byte[]>> conversions = new EnumMap<>(ReportFormat.class);
+        for (ReportFormat format : formats) {
+            conversions.computeIfAbsent(format, key -> CompletableFuture.supplyAsync(() -> convert(key, document), renderExecutor));
+        }
+
+        Map<ReportFormat, byte[]> reports = new EnumMap<>(ReportFormat.class);
+        try {
+            for (Map.Entry<ReportFormat, CompletableFuture<byte[]>> conversion : conversions.entrySet()) {
+                reports.put(conversion.getKey(), conversion.getValue().join());
+            }
+        } catch (CompletionException e) {
+            conversions.values().forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+        return reports;
+    }
+
+    private byte[] convert(ReportFormat format, RenderedDocument document) {
+        try {
+            return switch (format) {
+                case PDF -> pdfGenerationService.generatePdfFromRendered(document);
+                case EXCEL -> excelGenerationService.generateExcelFromRendered(document);
+                case WORD -> wordGenerationService.generateWordFromRendered(document);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
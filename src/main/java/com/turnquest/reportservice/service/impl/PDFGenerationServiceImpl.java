@@ -3,14 +3,13 @@ package com.turnquest.reportservice.service.impl;
 import com.itextpdf.html2pdf.ConverterProperties;
 import com.itextpdf.html2pdf.HtmlConverter;
 import com.lowagie.text.DocumentException;
+import com.turnquest.reportservice.models.RenderedDocument;
 import com.turnquest.reportservice.models.Template;
+import com.turnquest.reportservice.util.TemplateUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.io.*;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
@@ -19,8 +18,8 @@ import java.util.Map;
 public class PDFGenerationServiceImpl {
 
     private final TemplateServiceImpl templateService;
-    private final TemplateEngine templateEngine;
-    private final FirebaseService firebaseService;
+    private final TemplateRenderer templateRenderer;
+    private final UrlTemplateFetcher urlTemplateFetcher;
 
     /**
      * Generates a PDF file based on a template stored in Firebase.
@@ -34,8 +33,21 @@ public class PDFGenerationServiceImpl {
     public byte[] generatePdfFromTemplate(String templateName, Map<String, Object> data) throws IOException, DocumentException {
         Template template = templateService.getTemplateByName(templateName)
                 .orElseThrow(() -> new IllegalArgumentException("Template not found"));
-        InputStream templateStream = new FileInputStream(template.getFirebaseUrl());
-        return generatePdfFromStream(templateStream, data);
+        // Pin the current version for the whole render
+        return generatePdfFromTemplate(template, data);
+    }
+
+    /**
+     * Generates a PDF file based on a specific version of a stored template.
+     *
+     * @param template The template version to use for generating the PDF file.
+     * @param data A map containing the data to populate the template.
+     * @return A byte array representing the generated PDF file.
+     * @throws IOException If there is an error reading the template or writing the PDF file.
+     * @throws DocumentException If there is an error processing the template or generating the PDF file.
+     */
+    public byte[] generatePdfFromTemplate(Template template, Map<String, Object> data) throws IOException, DocumentException {
+        return generatePdfFromHtml(template.getContentHash(), templateService.getTemplateContent(template), data);
     }
 
     /**
@@ -61,8 +73,8 @@ public class PDFGenerationServiceImpl {
      * @throws DocumentException If there is an error processing the template or generating the PDF file.
      */
     public byte[] generatePdfFromUrl(String url, Map<String, Object> data) throws IOException, DocumentException {
-        InputStream inputStream = new URL(url).openStream();
-        return generatePdfFromStream(inputStream, data);
+        UrlTemplateFetcher.FetchedTemplate template = urlTemplateFetcher.fetch(url);
+        return generatePdfFromHtml(template.key(), template.content(), data);
     }
 
     /**
@@ -76,23 +88,49 @@ public class PDFGenerationServiceImpl {
      */
     private byte[] generatePdfFromStream(InputStream templateStream, Map<String, Object> data) throws IOException, DocumentException {
         // Read template as string
-        String htmlContent = new BufferedReader(new InputStreamReader(templateStream, StandardCharsets.UTF_8))
-                .lines()
-                .reduce("", (accumulator, actual) -> accumulator + actual);
+        String htmlContent = TemplateUtils.readTemplate(templateStream);
+        return generatePdfFromHtml(null, htmlContent, data);
+    }
 
-        // Process Thymeleaf template with data
-        Context context = new Context();
-        context.setVariables(data);
-        String processedHtml = templateEngine.process(htmlContent, context);
+    /**
+     * Helper method to generate a PDF file from template content and data.
+     *
+     * @param templateKey The key of the template version being rendered, or null for ad-hoc templates.
+     * @param htmlContent The Thymeleaf template content to use for generating the PDF file.
+     * @param data A map containing the data to populate the template.
+     * @return A byte array representing the generated PDF file.
+     * @throws IOException If there is an error processing the template or writing the PDF file.
+     */
+    private byte[] generatePdfFromHtml(String templateKey, String htmlContent, Map<String, Object> data) throws IOException {
+        // Generate PDF while the template is processed, streaming the rendered HTML into the converter
+        ByteArrayOutputStream pdfStream = new ByteArrayOutputStream();
+        ConverterProperties converterProperties = converterProperties();
+        /* Call convert method */
+        templateRenderer.renderPiped(templateKey, htmlContent, data,
+                renderedHtml -> HtmlConverter.convertToPdf(renderedHtml, pdfStream, converterProperties));
 
-        // Generate PDF
+        return pdfStream.toByteArray();
+    }
 
+    /**
+     * Generates a PDF file from a template that has already been rendered.
+     *
+     * @param document The rendered template output.
+     * @return A byte array representing the generated PDF file.
+     * @throws IOException If there is an error writing the PDF file.
+     */
+    public byte[] generatePdfFromRendered(RenderedDocument document) throws IOException {
         ByteArrayOutputStream pdfStream = new ByteArrayOutputStream();
+        try (InputStream renderedHtml = document.openStream()) {
+            HtmlConverter.convertToPdf(renderedHtml, pdfStream, converterProperties());
+        }
+        return pdfStream.toByteArray();
+    }
+
+    private static ConverterProperties converterProperties() {
         ConverterProperties converterProperties = new ConverterProperties();
         converterProperties.setBaseUri("http://localhost:8088");
-        /* Call convert method */
-        HtmlConverter.convertToPdf(processedHtml, pdfStream, converterProperties);
-
-        return pdfStream.toByteArray();
+        converterProperties.setCharset(StandardCharsets.UTF_8.name());
+        return converterProperties;
     }
 }
\ No newline at end of file
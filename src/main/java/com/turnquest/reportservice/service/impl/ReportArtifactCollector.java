@@ -0,0 +1,90 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.models.GeneratedReport;
+import com.turnquest.reportservice.repository.ReportRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps the artifact store within its size budget. Blobs no longer referenced by any
+ * generated_reports row are removed first, then the oldest reports are evicted together
+ * with their rows until the store fits again.
+ */
+@Slf4j
+@Component
+public class ReportArtifactCollector {
+
+    private static final int EVICTION_BATCH_SIZE = 100;
+
+    private final ReportArtifactStore artifactStore;
+    private final ReportRepository reportRepository;
+    private final DataSize maxSize;
+    private final Duration orphanGracePeriod;
+
+    public ReportArtifactCollector(ReportArtifactStore artifactStore,
+                                   ReportRepository reportRepository,
+                                   @Value("${reports.store.max-size:10GB}") DataSize maxSize,
+                                   @Value("${reports.store.orphan-grace-period:PT1H}") Duration orphanGracePeriod) {
+        this.artifactStore = artifactStore;
+        this.reportRepository = reportRepository;
+        this.maxSize = maxSize;
+        this.orphanGracePeriod = orphanGracePeriod;
+    }
+
+    /**
+     * Runs a collection pass over the artifact store.
+     *
+     * @throws IOException If there is an error reading or deleting blobs.
+     */
+    @Scheduled(fixedDelayString = "${reports.store.gc-interval:PT10M}",
+            initialDelayString = "${reports.store.gc-interval:PT10M}")
+    public void collect() throws IOException {
+        List<ReportArtifactStore.StoredBlob> blobs = artifactStore.list();
+
+        // Blobs written very recently may belong to a report whose row is not saved yet. They are left
+        // out of the budget, evicting reports could not free them and would empty the table instead
+        Set<String> referenced = reportRepository.findAllContentHashes();
+        Instant orphanCutoff = Instant.now().minus(orphanGracePeriod);
+        long totalSize = 0;
+        for (ReportArtifactStore.StoredBlob blob : blobs) {
+            if (referenced.contains(blob.contentHash())) {
+                totalSize += blob.size();
+            } else if (blob.lastModified().isBefore(orphanCutoff)) {
+                artifactStore.delete(blob.contentHash());
+            }
+        }
+
+        long evicted = 0;
+        while (totalSize > maxSize.toBytes()) {
+            List<GeneratedReport> oldest = reportRepository.findByOrderByGeneratedAtAsc(PageRequest.of(0, EVICTION_BATCH_SIZE));
+            if (oldest.isEmpty()) {
+                break;
+            }
+            for (GeneratedReport report : oldest) {
+                reportRepository.delete(report);
+                evicted++;
+                String contentHash = report.getContentHash();
+                if (contentHash != null && !reportRepository.existsByContentHash(contentHash)) {
+                    totalSize -= artifactStore.delete(contentHash);
+                }
+                if (totalSize <= maxSize.toBytes()) {
+                    break;
+                }
+            }
+        }
+
+        if (evicted > 0) {
+            log.info("Evicted {} generated reports to bring the artifact store under {}", evicted, maxSize);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.util.HashUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+@Service
+public class ReportArtifactStore {
+
+    private static final Pattern CONTENT_HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path blobDirectory;
+    private final Path tempDirectory;
+
+    public ReportArtifactStore(@Value("${reports.store.root:reports}") String root) {
+        this.blobDirectory = Paths.get(root, "blobs");
+        this.tempDirectory = Paths.get(root, "tmp");
+    }
+
+    /**
+     * Stores report content under its SHA-256 hash. Identical content is only ever stored once,
+     * regardless of the template or report type that produced it.
+     *
+     * @param content The bytes of the generated report.
+     * @return The content hash under which the report is stored.
+     * @throws IOException If there is an error writing the blob.
+     */
+    public String put(byte[] content) throws IOException {
+        String contentHash = HashUtils.sha256Hex(content);
+        Path blobPath = resolve(contentHash);
+        try {
+            // Deduplicated, refresh the timestamp so the collector treats it as recently used
+            Files.setLastModifiedTime(blobPath, FileTime.from(Instant.now()));
+            return contentHash;
+        } catch (NoSuchFileException e) {
+            // Not stored yet, or collected in the meantime
+        }
+
+        Files.createDirectories(blobPath.getParent());
+        Files.createDirectories(tempDirectory);
+        Path tempFile = Files.createTempFile(tempDirectory, contentHash, ".part");
+        try {
+            Files.write(tempFile, content);
+            moveIntoPlace(tempFile, blobPath);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        return contentHash;
+    }
+
+    /**
+     * Resolves the location of a stored blob.
+     *
+     * @param contentHash The SHA-256 hash of the report content.
+     * @return The path of the blob, which may not exist.
+     * @throws IllegalArgumentException If the hash is not a lowercase hex SHA-256 value.
+     */
+    public Path resolve(String contentHash) {
+        if (contentHash == null || !CONTENT_HASH.matcher(contentHash).matches()) {
+            throw new IllegalArgumentException("Invalid content hash: " + contentHash);
+        }
+        return blobDirectory.resolve(contentHash.substring(0, 2)).resolve(contentHash);
+    }
+
+    /**
+     * Checks whether a blob is present in the store.
+     *
+     * @param contentHash The SHA-256 hash of the report content.
+     * @return True if the blob exists.
+     */
+    public boolean exists(String contentHash) {
+        return Files.exists(resolve(contentHash));
+    }
+
+    /**
+     * Deletes a blob from the store if present.
+     *
+     * @param contentHash The SHA-256 hash of the report content.
+     * @return The number of bytes freed.
+     * @throws IOException If there is an error deleting the blob.
+     */
+    public long delete(String contentHash) throws IOException {
+        Path blobPath = resolve(contentHash);
+        try {
+            long size = Files.size(blobPath);
+            Files.delete(blobPath);
+            return size;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Lists every blob currently in the store.
+     *
+     * @return The stored blobs with their size and last modification time.
+     * @throws IOException If there is an error walking the store.
+     */
+    public List<StoredBlob> list() throws IOException {
+        if (!Files.isDirectory(blobDirectory)) {
+            return List.of();
+        }
+        List<StoredBlob> blobs = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(blobDirectory, 2)) {
+            paths.filter(path -> CONTENT_HASH.matcher(path.getFileName().toString()).matches())
+                    .forEach(path -> {
+                        try {
+                            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                            blobs.add(new StoredBlob(path.getFileName().toString(), attributes.size(),
+                                    attributes.lastModifiedTime().toInstant()));
+                        } catch (NoSuchFileException e) {
+                            // Deleted while walking
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return blobs;
+    }
+
+    private void moveIntoPlace(Path tempFile, Path blobPath) throws IOException {
+        try {
+            Files.move(tempFile, blobPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Another request stored the same content concurrently
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, blobPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * A blob in the artifact store.
+     *
+     * @param contentHash The SHA-256 hash of the blob content.
+     * @param size The size of the blob in bytes.
+     * @param lastModified When the blob was last written or deduplicated against.
+     */
+    public record StoredBlob(String contentHash, long size, Instant lastModified) {
+    }
+}
@@ -0,0 +1,214 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.models.GeneratedReport;
+import com.turnquest.reportservice.repository.ReportRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Records generated report metadata off the request path. Reports are queued and written in
+ * batches, upserting on (data_hash, template_name, report_type) so regenerating a report
+ * updates its existing row instead of adding another one. A batch that fails for any reason other
+ * than a constraint violation is kept and retried by the next flush, so a database outage delays
+ * metadata instead of losing it.
+ */
+@Slf4j
+@Component
+@DependsOn("reportSequenceInitializer")
+public class ReportMetadataWriter {
+
+    private final ReportRepository reportRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<GeneratedReport> pending;
+    private final int batchSize;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Reports of the batch being written, kept across flushes while the database is failing. Guarded by flushLock
+    private final List<GeneratedReport> batch = new ArrayList<>();
+    // Queued reports by content hash, so they can be served before their rows are written
+    private final Map<String, GeneratedReport> pendingByContentHash = new ConcurrentHashMap<>();
+
+    public ReportMetadataWriter(ReportRepository reportRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${reports.metadata.queue-capacity:10000}") int queueCapacity,
+                                @Value("${reports.metadata.batch-size:500}") int batchSize) {
+        this.reportRepository = reportRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pending = new LinkedBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Queues a report for recording. If the queue is full the caller flushes a batch itself,
+     * which throttles producers to the speed of the database. While the database is failing the
+     * caller waits for room in the queue instead.
+     *
+     * @param report The report metadata to record.
+     * @throws IllegalStateException If the thread is interrupted while waiting for room in the queue.
+     */
+    public void enqueue(GeneratedReport report) {
+        if (report.getContentHash() != null) {
+            pendingByContentHash.put(report.getContentHash(), report);
+        }
+        try {
+            while (!pending.offer(report)) {
+                if (!flushBatches()) {
+                    pending.offer(report, 1, TimeUnit.SECONDS);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (report.getContentHash() != null) {
+                pendingByContentHash.remove(report.getContentHash(), report);
+            }
+            throw new IllegalStateException("Interrupted while queueing report " + report.getReportName(), e);
+        }
+    }
+
+    /**
+     * Finds a report that is queued but not yet written to the database.
+     *
+     * @param contentHash The SHA-256 hash of the report content.
+     * @return An Optional containing the queued report with this content, or empty if none is queued.
+     */
+    public Optional<GeneratedReport> findPending(String contentHash) {
+        return Optional.ofNullable(pendingByContentHash.get(contentHash));
+    }
+
+    /**
+     * Writes every queued report to the database, one batch at a time.
+     */
+    @Scheduled(fixedDelayString = "${reports.metadata.flush-interval:PT1S}")
+    public void flush() {
+        flushBatches();
+    }
+
+    /**
+     * Writes queued reports until the queue is empty or a batch fails. A failed batch is kept and
+     * written first by the next flush, and its reports stay visible to {@link #findPending}.
+     *
+     * @return true if every queued report was written, false if a batch failed.
+     */
+    private boolean flushBatches() {
+        flushLock.lock();
+        try {
+            while (!batch.isEmpty() || pending.drainTo(batch, batchSize) > 0) {
+                List<GeneratedReport> unwritten = writeBatch(batch);
+                // By identity, reports are entities with value based equality
+                Set<GeneratedReport> retried = Collections.newSetFromMap(new IdentityHashMap<>());
+                retried.addAll(unwritten);
+                for (GeneratedReport report : batch) {
+                    if (report.getContentHash() != null && !retried.contains(report)) {
+                        pendingByContentHash.remove(report.getContentHash(), report);
+                    }
+                }
+                batch.clear();
+                batch.addAll(unwritten);
+                if (!unwritten.isEmpty()) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Flushes outstanding reports so no metadata is lost on shutdown.
+     */
+    @PreDestroy
+    public void close() {
+        if (!flushBatches()) {
+            log.error("Failed to record {} generated reports before shutdown", batch.size() + pending.size());
+        }
+    }
+
+    /**
+     * Writes a batch of reports.
+     *
+     * @return The reports that could not be written and should be retried, empty if the batch was written.
+     */
+    private List<GeneratedReport> writeBatch(List<GeneratedReport> reports) {
+        // Only the latest report for a key within a batch is kept
+        Map<String, GeneratedReport> latestByKey = new LinkedHashMap<>();
+        for (GeneratedReport report : reports) {
+            latestByKey.put(key(report), report);
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> upsert(latestByKey.values()));
+            return List.of();
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent writer inserted one of the keys, retry each report on its own
+            List<GeneratedReport> unwritten = new ArrayList<>();
+            for (GeneratedReport report : latestByKey.values()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> upsert(List.of(report)));
+                } catch (DataIntegrityViolationException retryFailure) {
+                    // Retrying cannot fix a report that violates a constraint on its own
+                    log.error("Failed to record generated report {}", report.getReportName(), retryFailure);
+                } catch (RuntimeException retryFailure) {
+                    log.warn("Failed to record generated report {}, retrying with the next flush",
+                            report.getReportName(), retryFailure);
+                    unwritten.add(report);
+                }
+            }
+            return unwritten;
+        } catch (RuntimeException e) {
+            // A lost connection or a row deleted under the upsert, the next attempt reloads the existing rows
+            log.warn("Failed to record {} generated reports, retrying with the next flush", latestByKey.size(), e);
+            return new ArrayList<>(latestByKey.values());
+        }
+    }
+
+    private void upsert(Collection<GeneratedReport> reports) {
+        List<String> dataHashes = reports.stream().map(GeneratedReport::getDataHash).distinct().toList();
+        Map<String, GeneratedReport> existingByKey = reportRepository.findByDataHashIn(dataHashes).stream()
+                .collect(Collectors.toMap(ReportMetadataWriter::key, report -> report, (first, second) -> first));
+
+        List<GeneratedReport> toSave = new ArrayList<>(reports.size());
+        for (GeneratedReport report : reports) {
+            GeneratedReport existing = existingByKey.get(key(report));
+            if (existing == null) {
+                report.setId(null);
+                toSave.add(report);
+            } else {
+                existing.setReportName(report.getReportName());
+                existing.setContentHash(report.getContentHash());
+                existing.setSizeBytes(report.getSizeBytes());
+                existing.setLocalFilePath(report.getLocalFilePath());
+                existing.setFirebaseUrl(report.getFirebaseUrl());
+                existing.setGeneratedAt(report.getGeneratedAt());
+                toSave.add(existing);
+            }
+        }
+        reportRepository.saveAll(toSave);
+    }
+
+    private static String key(GeneratedReport report) {
+        return report.getDataHash() + '\0' + report.getTemplateName() + '\0' + report.getReportType();
+    }
+}
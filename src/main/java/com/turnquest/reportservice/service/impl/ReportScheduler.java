@@ -0,0 +1,295 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turnquest.reportservice.models.GeneratedReport;
+import com.turnquest.reportservice.models.ReportData;
+import com.turnquest.reportservice.models.ReportSchedule;
+import com.turnquest.reportservice.models.Template;
+import com.turnquest.reportservice.repository.ReportRepository;
+import com.turnquest.reportservice.repository.ReportScheduleRepository;
+import com.turnquest.reportservice.service.ExcelGenerationService;
+import com.turnquest.reportservice.service.WordGenerationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs recurring report schedules. Due schedules are generated in parallel, up to the configured
+ * concurrency budget, and a run is skipped when neither the data nor the template changed since
+ * the last run and the report it produced is still stored.
+ * <p>
+ * Every run is recorded in the {@code reports.schedule.runs} timer, tagged with its outcome
+ * (generated, skipped or failed), which gives both the job durations and the skip rate.
+ */
+@Slf4j
+@Service
+public class ReportScheduler {
+
+    static final String GENERATED = "generated";
+    static final String SKIPPED = "skipped";
+    static final String FAILED = "failed";
+
+    private final ReportScheduleRepository scheduleRepository;
+    private final ReportRepository reportRepository;
+    private final ReportArtifactStore artifactStore;
+    private final ReportServiceImpl reportService;
+    private final TemplateServiceImpl templateService;
+    private final PDFGenerationServiceImpl pdfGenerationService;
+    private final ExcelGenerationService excelGenerationService;
+    private final WordGenerationService wordGenerationService;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final MeterRegistry meterRegistry;
+    private final Duration dataSourceTimeout;
+    private final Semaphore budget;
+    private final ExecutorService scheduleExecutor;
+
+    public ReportScheduler(ReportScheduleRepository scheduleRepository,
+                           ReportRepository reportRepository,
+                           ReportArtifactStore artifactStore,
+                           ReportServiceImpl reportService,
+                           TemplateServiceImpl templateService,
+                           PDFGenerationServiceImpl pdfGenerationService,
+                           ExcelGenerationService excelGenerationService,
+                           WordGenerationService wordGenerationService,
+                           ObjectMapper objectMapper,
+                           HttpClient httpClient,
+                           MeterRegistry meterRegistry,
+                           @Value("${reports.schedules.max-concurrent:4}") int maxConcurrent,
+                           @Value("${reports.schedules.data-source-timeout:PT30S}") Duration dataSourceTimeout) {
+        this.scheduleRepository = scheduleRepository;
+        this.reportRepository = reportRepository;
+        this.artifactStore = artifactStore;
+        this.reportService = reportService;
+        this.templateService = templateService;
+        this.pdfGenerationService = pdfGenerationService;
+        this.excelGenerationService = excelGenerationService;
+        this.wordGenerationService = wordGenerationService;
+        this.objectMapper = objectMapper;
+        this.httpClient = httpClient;
+        this.meterRegistry = meterRegistry;
+        this.dataSourceTimeout = dataSourceTimeout;
+        this.budget = new Semaphore(maxConcurrent);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("report-schedule-");
+        threadFactory.setDaemon(true);
+        this.scheduleExecutor = Executors.newFixedThreadPool(maxConcurrent, threadFactory);
+    }
+
+    /**
+     * Creates a report schedule, first running at the next time its cron expression matches.
+     *
+     * @param schedule The schedule to create.
+     * @return The saved ReportSchedule.
+     * @throws IllegalArgumentException If the cron expression is invalid or the schedule has no template or output type.
+     */
+    public ReportSchedule createSchedule(ReportSchedule schedule) {
+        if (schedule.getTemplateName() == null || schedule.getReportType() == null) {
+            throw new IllegalArgumentException("A schedule needs a template name and a report type");
+        }
+        schedule.setId(null);
+        schedule.setLastDataHash(null);
+        schedule.setLastTemplateHash(null);
+        schedule.setLastRunAt(null);
+        schedule.setLastOutcome(null);
+        schedule.setNextRunAt(CronExpression.parse(schedule.getCron()).next(LocalDateTime.now()));
+        return scheduleRepository.save(schedule);
+    }
+
+    /**
+     * Retrieves every report schedule.
+     *
+     * @return A list of all report schedules.
+     */
+    public List<ReportSchedule> getSchedules() {
+        return scheduleRepository.findAll();
+    }
+
+    /**
+     * Deletes a report schedule. Reports it already generated are kept.
+     *
+     * @param id The id of the schedule.
+     * @return true if the schedule existed and was deleted, false otherwise.
+     */
+    public boolean deleteSchedule(Long id) {
+        if (!scheduleRepository.existsById(id)) {
+            return false;
+        }
+        scheduleRepository.deleteById(id);
+        return true;
+    }
+
+    /**
+     * Starts every due schedule the concurrency budget allows. Schedules left over because the
+     * budget is used up are picked up by a later poll.
+     */
+    @Scheduled(fixedDelayString = "${reports.schedules.poll-interval:PT30S}")
+    public void runDueSchedules() {
+        int available = budget.availablePermits();
+        if (available == 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ReportSchedule> due = scheduleRepository
+                .findByEnabledTrueAndNextRunAtLessThanEqualOrderByNextRunAtAsc(now, PageRequest.of(0, available));
+        for (ReportSchedule schedule : due) {
+            if (!budget.tryAcquire()) {
+                break;
+            }
+            // Claim the run by moving the schedule to its next occurrence, so no other poll or instance starts it too
+            LocalDateTime next;
+            try {
+                next = CronExpression.parse(schedule.getCron()).next(now);
+            } catch (IllegalArgumentException e) {
+                log.error("Disabling report schedule {} with invalid cron expression {}", schedule.getId(), schedule.getCron(), e);
+                scheduleRepository.disable(schedule.getId());
+                budget.release();
+                continue;
+            }
+            if (scheduleRepository.claimRun(schedule.getId(), schedule.getNextRunAt(), next) == 0) {
+                budget.release();
+                continue;
+            }
+            scheduleExecutor.execute(() -> {
+                try {
+                    run(schedule);
+                } finally {
+                    budget.release();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        scheduleExecutor.shutdown();
+    }
+
+    private void run(ReportSchedule schedule) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome;
+        try {
+            outcome = generateIfChanged(schedule) ? GENERATED : SKIPPED;
+        } catch (Exception e) {
+            outcome = FAILED;
+            log.error("Report schedule {} for template {} failed", schedule.getId(), schedule.getTemplateName(), e);
+        }
+        sample.stop(meterRegistry.timer("reports.schedule.runs", "outcome", outcome));
+
+        // Targeted updates, so changes made to the schedule during the run are kept and a deleted schedule stays deleted
+        try {
+            scheduleRepository.recordRun(schedule.getId(), LocalDateTime.now(), outcome);
+        } catch (RuntimeException e) {
+            log.error("Failed to record the run of report schedule {}", schedule.getId(), e);
+        }
+    }
+
+    /**
+     * Generates the report of a schedule unless its inputs are unchanged since the last run.
+     *
+     * @return true if a report was generated, false if the run was skipped.
+     */
+    private boolean generateIfChanged(ReportSchedule schedule) throws Exception {
+        ReportData data = loadData(schedule);
+        String dataHash = reportService.hashData(data);
+        Template template = templateService.getTemplateByName(schedule.getTemplateName())
+                .orElseThrow(() -> new IllegalArgumentException("Template not found"));
+        String templateHash = template.getContentHash();
+
+        if (templateHash != null
+                && dataHash.equals(schedule.getLastDataHash())
+                && templateHash.equals(schedule.getLastTemplateHash())
+                && reportExists(schedule, dataHash)) {
+            return false;
+        }
+
+        // Render the version whose hash is recorded, even if a newer one is uploaded meanwhile
+        byte[] content = switch (schedule.getReportType()) {
+            case PDF -> pdfGenerationService.generatePdfFromTemplate(template, data);
+            case EXCEL -> excelGenerationService.generateExcelFromTemplate(template, data);
+            case WORD -> wordGenerationService.generateWordFromTemplate(template, data);
+        };
+        reportService.saveReport(content, schedule.getTemplateName(), schedule.getReportType(), data);
+
+        scheduleRepository.recordInputs(schedule.getId(), dataHash, templateHash);
+        return true;
+    }
+
+    private boolean reportExists(ReportSchedule schedule, String dataHash) {
+        Optional<GeneratedReport> report = reportRepository.findByDataHashAndTemplateNameAndReportType(
+                dataHash, schedule.getTemplateName(), schedule.getReportType());
+        return report.map(GeneratedReport::getContentHash)
+                .filter(artifactStore::exists)
+                .isPresent();
+    }
+
+    private ReportData loadData(ReportSchedule schedule) throws IOException, InterruptedException {
+        if (schedule.getDataSourceUrl() != null) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(schedule.getDataSourceUrl()))
+                    .timeout(dataSourceTimeout)
+                    .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                    .GET()
+                    .build();
+            HttpResponse<byte[]> response = send(request);
+            if (response.statusCode() != 200) {
+                throw new IOException("Failed to fetch report data from " + schedule.getDataSourceUrl()
+                        + ": HTTP " + response.statusCode());
+            }
+            return objectMapper.readValue(response.body(), ReportData.class);
+        }
+        if (schedule.getDataSnapshot() != null) {
+            return objectMapper.readValue(schedule.getDataSnapshot(), ReportData.class);
+        }
+        return new ReportData();
+    }
+
+    /**
+     * Sends a request to a data source. The timeout bounds the whole exchange, including the body, so a
+     * data source that stalls mid-response cannot hold a schedule worker and its budget permit forever.
+     */
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        CompletableFuture<HttpResponse<byte[]>> exchange =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            return exchange.get(dataSourceTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            exchange.cancel(true);
+            throw new HttpTimeoutException("Timed out fetching report data from " + request.uri());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to fetch report data from " + request.uri(), e.getCause());
+        } catch (InterruptedException e) {
+            exchange.cancel(true);
+            throw e;
+        }
+    }
+}
@@ -1,56 +1,81 @@
 package com.turnquest.reportservice.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.turnquest.reportservice.models.GeneratedReport;
+import com.turnquest.reportservice.models.ReportFormat;
+import com.turnquest.reportservice.repository.ReportRepository;
+import com.turnquest.reportservice.util.HashUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
 
+@Service
+@RequiredArgsConstructor
 public class ReportServiceImpl {
 
-    private final FirebaseService firebaseService;
-
-    public ReportServiceImpl(FirebaseService firebaseService) {
-        this.firebaseService = firebaseService;
-    }
+    private final ReportArtifactStore artifactStore;
+    private final ReportRepository reportRepository;
+    private final ReportMetadataWriter reportMetadataWriter;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Saves the generated report locally with a unique name based on the template and data hash.
+     * Stores a generated report in the artifact store and queues its metadata to be recorded.
      *
-     * @param pdfBytes The byte array representing the generated PDF report.
+     * @param content The bytes of the generated report.
      * @param templateName The name of the template used to generate the report.
-     * @param dataHash A hash representing the input data used for generating the report, ensuring uniqueness.
-     * @return The file path where the report is saved locally.
-     * @throws IOException If there is an error during file writing.
+     * @param format The format of the generated report.
+     * @param data The data used to populate the template.
+     * @return The GeneratedReport describing the stored report, recorded in the database shortly after.
+     * @throws IOException If there is an error storing the report.
      */
-    private String saveReportLocally(byte[] pdfBytes, String templateName, String dataHash) throws IOException {
-        String fileName = templateName + "_" + dataHash + ".pdf";
-        Path filePath = Paths.get("reports", fileName);
-        Files.write(filePath, pdfBytes);
-        return filePath.toString();
+    public GeneratedReport saveReport(byte[] content, String templateName, ReportFormat format,
+                                      Map<String, Object> data) throws IOException {
+        String dataHash = hashData(data);
+        String contentHash = artifactStore.put(content);
+
+        GeneratedReport report = new GeneratedReport();
+        report.setReportName(templateName + "_" + dataHash + "." + format.getExtension());
+        report.setTemplateName(templateName);
+        report.setDataHash(dataHash);
+        report.setReportType(format);
+        report.setContentHash(contentHash);
+        report.setSizeBytes((long) content.length);
+        report.setLocalFilePath(artifactStore.resolve(contentHash).toString());
+        report.setGeneratedAt(LocalDateTime.now());
+        reportMetadataWriter.enqueue(report);
+        return report;
     }
 
-//    private String uploadReportToFirebase(String localFilePath) {
-//        // Firebase upload logic, returning the file URL
-//        String firebaseUrl = ...;
-//        return firebaseUrl;
-//    }
+    /**
+     * Finds a stored report by the hash of its content.
+     *
+     * @param contentHash The SHA-256 hash of the report content.
+     * @return An Optional containing a report with this content, or empty if none is stored.
+     */
+    public Optional<GeneratedReport> findByContentHash(String contentHash) {
+        // Freshly generated reports are stored before their metadata row is written
+        return reportRepository.findFirstByContentHash(contentHash)
+                .or(() -> reportMetadataWriter.findPending(contentHash))
+                .filter(report -> artifactStore.exists(contentHash));
+    }
 
     /**
-     * Retrieves the generated report either from local storage or Firebase based on the provided report information.
+     * Computes a stable hash of the data used to populate a template, independent of map ordering.
      *
-     * @param report The GeneratedReport object containing information about where the report is stored.
-     * @return A byte array representing the content of the retrieved report.
-     * @throws IOException If there is an error during file reading or if the report is not found.
+     * @param data The data used to populate the template.
+     * @return The hex encoded SHA-256 hash of the canonical JSON form of the data.
+     * @throws JsonProcessingException If the data cannot be serialized.
      */
-    private byte[] retrieveReport(GeneratedReport report) throws IOException {
-        if (report.getLocalFilePath() != null) {
-            return Files.readAllBytes(Paths.get(report.getLocalFilePath()));
-        } else if (report.getFirebaseUrl() != null) {
-            return firebaseService.downloadFromFirebase(report.getFirebaseUrl());
-        }
-        throw new FileNotFoundException("Report not found");
+    public String hashData(Map<String, Object> data) throws JsonProcessingException {
+        byte[] canonicalJson = objectMapper.writer()
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+                .writeValueAsBytes(data);
+        return HashUtils.sha256Hex(canonicalJson);
     }
 }
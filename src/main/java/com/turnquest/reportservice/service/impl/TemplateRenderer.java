@@ -0,0 +1,334 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.config.PreparedTemplateResolver;
+import com.turnquest.reportservice.models.RenderedDocument;
+import com.turnquest.reportservice.util.HashUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.templatemode.TemplateMode;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service
+@RequiredArgsConstructor
+public class TemplateRenderer {
+
+    /**
+     * Context variable holding the pre-rendered static fragments of the template being processed.
+     */
+    static final String STATIC_FRAGMENTS_VARIABLE = "reportStaticFragments";
+
+    private static final int MAX_PREPARED_TEMPLATES = 256;
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+    private static final long RENDER_FAILURE_WAIT_MILLIS = 100;
+
+    // Elements explicitly marked as data independent, e.g. <div data-static="true"> or <div data-static>
+    private static final Pattern MARKED_STATIC_ELEMENT =
+            Pattern.compile("<([a-zA-Z][\\w:-]*)\\b[^>]*?\\sdata-static(?:\\s*=\\s*(?:\"(?:true)?\"|'(?:true)?'|true))?[\\s/>]",
+                    Pattern.CASE_INSENSITIVE);
+    // Style and script blocks, kept as static when they contain no Thymeleaf markup
+    private static final Pattern RAW_TEXT_ELEMENT =
+            Pattern.compile("<(style|script)\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern THYMELEAF_MARKUP =
+            Pattern.compile("th:|data-th-|\\[\\[|\\[\\(|[$*#@~]\\{|__");
+
+    private final TemplateEngine templateEngine;
+    private final ExecutorService renderExecutor;
+
+    private final Map<String, PreparedTemplate> preparedTemplates = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedTemplate> eldest) {
+                    return size() > MAX_PREPARED_TEMPLATES;
+                }
+            });
+
+    /**
+     * Processes a template with the given data on a render thread while the consumer reads the
+     * rendered HTML as a UTF-8 stream, so the document is never held as a single String.
+     *
+     * @param templateKey A key identifying this exact template content, such as the content hash of a
+     *                    template version, or null to derive one from the content.
+     * @param htmlContent The Thymeleaf template content.
+     * @param data A map containing the data to populate the template.
+     * @param consumer The consumer reading the rendered HTML, typically a document converter.
+     * @throws IOException If the consumer fails or the template could not be rendered.
+     */
+    public void renderPiped(String templateKey, String htmlContent, Map<String, Object> data,
+                            RenderedHtmlConsumer consumer) throws IOException {
+        PipedInputStream renderedHtml = new PipedInputStream(PIPE_BUFFER_SIZE);
+        PipedOutputStream renderOutput = new PipedOutputStream(renderedHtml);
+
+        Future<?> rendering = renderExecutor.submit(() -> {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(renderOutput, StandardCharsets.UTF_8))) {
+                render(templateKey, htmlContent, data, writer);
+            }
+            return null;
+        });
+
+        try (renderedHtml) {
+            consumer.accept(renderedHtml);
+        } catch (IOException | RuntimeException e) {
+            // The read end is closed by now, which unblocks the render thread if it is still writing.
+            // A template error leaves the consumer with truncated HTML, so that error is the one to report
+            Throwable renderFailure = renderFailure(rendering);
+            rendering.cancel(true);
+            if (renderFailure instanceof TemplateProcessingException templateError) {
+                templateError.addSuppressed(e);
+                throw templateError;
+            }
+            if (renderFailure != null) {
+                e.addSuppressed(renderFailure);
+            }
+            throw e;
+        }
+
+        try {
+            rendering.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Failed to render template", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while rendering template");
+        }
+    }
+
+    /**
+     * Returns the exception a render finished with, waiting briefly in case it is just failing.
+     */
+    private static Throwable renderFailure(Future<?> rendering) {
+        try {
+            rendering.get(RENDER_FAILURE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (TimeoutException | CancellationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Processes a template with the given data, writing the rendered HTML to a Writer.
+     * Static fragments of the template are rendered once per template content and spliced in as-is.
+     *
+     * @param templateKey A key identifying this exact template content, such as the content hash of a
+     *                    template version, or null to derive one from the content.
+     * @param htmlContent The Thymeleaf template content.
+     * @param data A map containing the data to populate the template.
+     * @param writer The Writer receiving the rendered HTML.
+     */
+    public void render(String templateKey, String htmlContent, Map<String, Object> data, Writer writer) {
+        PreparedTemplate prepared = prepare(templateKey, htmlContent);
+
+        Context context = new Context();
+        context.setVariables(data);
+        context.setVariable(STATIC_FRAGMENTS_VARIABLE, prepared.staticFragments());
+        templateEngine.process(templateSpec(prepared), context, writer);
+    }
+
+    /**
+     * Prepares a template and has the engine parse it, so the first render after startup finds the
+     * parsed template in the engine cache.
+     *
+     * @param templateKey A key identifying this exact template content, such as the content hash of a
+     *                    template version, or null to derive one from the content.
+     * @param htmlContent The Thymeleaf template content.
+     */
+    public void warmUp(String templateKey, String htmlContent) {
+        PreparedTemplate prepared = prepare(templateKey, htmlContent);
+
+        Context context = new Context();
+        context.setVariable(STATIC_FRAGMENTS_VARIABLE, prepared.staticFragments());
+        try {
+            templateEngine.process(templateSpec(prepared), context, Writer.nullWriter());
+        } catch (TemplateProcessingException e) {
+            // Expressions may need report data, the parsed template is cached before it is processed
+        }
+    }
+
+    /**
+     * Builds the spec a prepared template is processed with. The engine caches the parsed template
+     * under the key, so each version is only parsed once.
+     */
+    private static TemplateSpec templateSpec(PreparedTemplate prepared) {
+        return new TemplateSpec(PreparedTemplateResolver.NAME_PREFIX + prepared.key(), null,
+                TemplateMode.HTML, Map.of(PreparedTemplateResolver.SOURCE_ATTRIBUTE, prepared.source()));
+    }
+
+    /**
+     * Processes a template with the given data into a rendered document that can be handed to
+     * several converters, so the template is evaluated only once for all of them.
+     *
+     * @param templateKey A key identifying this exact template content, such as the content hash of a
+     *                    template version, or null to derive one from the content.
+     * @param htmlContent The Thymeleaf template content.
+     * @param data A map containing the data to populate the template.
+     * @return The rendered document.
+     */
+    public RenderedDocument renderDocument(String templateKey, String htmlContent, Map<String, Object> data) {
+        StringWriter writer = new StringWriter(htmlContent.length());
+        render(templateKey, htmlContent, data, writer);
+        return new RenderedDocument(writer.toString());
+    }
+
+    /**
+     * Returns the prepared form of a template, pre-rendering its static fragments on first use.
+     *
+     * @param templateKey A key identifying this exact template content, such as the content hash of a
+     *                    template version, or null to derive one from the content.
+     * @param htmlContent The Thymeleaf template content.
+     * @return The prepared template for this exact template content.
+     */
+    public PreparedTemplate prepare(String templateKey, String htmlContent) {
+        String key = templateKey != null ? templateKey : HashUtils.sha256Hex(htmlContent);
+        PreparedTemplate prepared = preparedTemplates.get(key);
+        if (prepared == null) {
+            prepared = extractStaticFragments(key, htmlContent);
+            preparedTemplates.put(key, prepared);
+        }
+        return prepared;
+    }
+
+    /**
+     * Replaces every static fragment of a template with a reference to its pre-rendered output.
+     *
+     * @param key The key identifying the template content.
+     * @param htmlContent The Thymeleaf template content.
+     * @return The rewritten template together with the pre-rendered fragments.
+     */
+    private PreparedTemplate extractStaticFragments(String key, String htmlContent) {
+        List<int[]> segments = new ArrayList<>();
+        collectMarkedElements(htmlContent, segments);
+        collectRawTextElements(htmlContent, segments);
+        segments.sort(Comparator.comparingInt(segment -> segment[0]));
+
+        StringBuilder source = new StringBuilder(htmlContent.length());
+        List<String> fragments = new ArrayList<>();
+        int position = 0;
+        for (int[] segment : segments) {
+            if (segment[0] < position) {
+                // Nested inside a fragment that is already static
+                continue;
+            }
+            source.append(htmlContent, position, segment[0]);
+            String fragment = htmlContent.substring(segment[0], segment[1]);
+            source.append("<th:block th:utext=\"${").append(STATIC_FRAGMENTS_VARIABLE)
+                    .append('[').append(fragments.size()).append("]}\"></th:block>");
+            fragments.add(templateEngine.process(fragment, new Context()));
+            position = segment[1];
+        }
+        source.append(htmlContent, position, htmlContent.length());
+
+        return new PreparedTemplate(key, source.toString(), List.copyOf(fragments));
+    }
+
+    private void collectMarkedElements(String html, List<int[]> segments) {
+        Matcher matcher = MARKED_STATIC_ELEMENT.matcher(html);
+        while (matcher.find()) {
+            int end = findElementEnd(html, matcher.group(1), matcher.start());
+            if (end > 0) {
+                segments.add(new int[]{matcher.start(), end});
+            }
+        }
+    }
+
+    private void collectRawTextElements(String html, List<int[]> segments) {
+        Matcher matcher = RAW_TEXT_ELEMENT.matcher(html);
+        while (matcher.find()) {
+            // Matched on the template itself, as lower casing can change its length and shift every index
+            Matcher closingTag = Pattern.compile("</" + matcher.group(1) + "\\s*>", Pattern.CASE_INSENSITIVE)
+                    .matcher(html);
+            if (!closingTag.find(matcher.end())) {
+                continue;
+            }
+            String element = html.substring(matcher.start(), closingTag.end());
+            if (!THYMELEAF_MARKUP.matcher(element).find()) {
+                segments.add(new int[]{matcher.start(), closingTag.end()});
+            }
+        }
+    }
+
+    /**
+     * Finds the end of an element, taking nested elements with the same tag name into account.
+     *
+     * @param html The template content.
+     * @param tagName The name of the element's tag.
+     * @param start The index of the element's opening tag.
+     * @return The index just past the element's closing tag, or -1 if it is not closed.
+     */
+    private static int findElementEnd(String html, String tagName, int start) {
+        Pattern tag = Pattern.compile("<(/?)" + Pattern.quote(tagName) + "\\b[^>]*?(/?)>", Pattern.CASE_INSENSITIVE);
+        Matcher matcher = tag.matcher(html);
+        int depth = 0;
+        int from = start;
+        while (matcher.find(from)) {
+            boolean closing = !matcher.group(1).isEmpty();
+            boolean selfClosing = !matcher.group(2).isEmpty();
+            if (closing) {
+                depth--;
+            } else if (!selfClosing) {
+                depth++;
+            }
+            if (depth == 0) {
+                return matcher.end();
+            }
+            from = matcher.end();
+        }
+        return -1;
+    }
+
+    /**
+     * A template whose static fragments have been rendered ahead of time.
+     *
+     * @param key The key identifying the template content.
+     * @param source The template with static fragments replaced by references to their pre-rendered output.
+     * @param staticFragments The pre-rendered static fragments, in template order.
+     */
+    public record PreparedTemplate(String key, String source, List<String> staticFragments) {
+    }
+
+    /**
+     * Reads rendered HTML produced by {@link #renderPiped}.
+     */
+    @FunctionalInterface
+    public interface RenderedHtmlConsumer {
+        void accept(InputStream renderedHtml) throws IOException;
+    }
+}
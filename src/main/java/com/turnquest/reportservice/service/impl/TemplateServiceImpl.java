@@ -4,72 +4,291 @@ import com.google.cloud.storage.Blob;
 import com.google.cloud.storage.Bucket;
 import com.google.firebase.cloud.StorageClient;
 import com.turnquest.reportservice.models.Template;
+import com.turnquest.reportservice.models.TemplateVersion;
 import com.turnquest.reportservice.repository.TemplateRepository;
+import com.turnquest.reportservice.repository.TemplateVersionRepository;
+import com.turnquest.reportservice.util.HashUtils;
+import com.turnquest.reportservice.util.TemplateUtils;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
-import java.io.FileOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class TemplateServiceImpl  {
 
+    private static final String TEMPLATE_DIRECTORY = "./templates";
+    private static final Pattern TEMPLATE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]*");
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
     private final TemplateRepository templateRepository;
+    private final TemplateVersionRepository templateVersionRepository;
+    private final FirebaseService firebaseService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${spring.servlet.multipart.max-file-size:1MB}")
+    private DataSize maxUploadSize;
 
     /**
-     * Saves a template file to the server and stores its metadata in the database.
+     * Saves an uploaded template file to the server as a new immutable version and makes it the current
+     * version of the template. The upload is moved into the template directory and hashed before the
+     * database transaction starts, so no connection is held while the file is transferred. Renders that
+     * already started keep using the version they pinned.
      *
      * @param name The name of the template.
-     * @param templateStream An InputStream containing the template file to be saved.
+     * @param file The uploaded template file.
      * @return The saved Template object containing metadata about the template.
      * @throws IOException If there is an error during file saving or database operations.
+     * @throws MaxUploadSizeExceededException If the template is larger than the configured upload limit.
      */
-    public Template saveTemplate(String name, InputStream templateStream) throws IOException{
-        // Define the directory where templates will be saved
-        String directoryPath = "./templates";
-        File directory = new File(directoryPath);
-
-        // Create the directory if it doesn't exist
-        if (!directory.exists()) {
-            if (!directory.mkdirs()) {
-                throw new IOException("Failed to create directory: " + directoryPath);
-            }
+    @CacheEvict(value = "templates", key = "#name")
+    public Template saveTemplate(String name, MultipartFile file) throws IOException {
+        validateTemplateName(name);
+        if (file.getSize() > maxUploadSize.toBytes()) {
+            throw new MaxUploadSizeExceededException(maxUploadSize.toBytes());
+        }
+
+        // Create the directory where the versions of this template are saved if it doesn't exist
+        Path directory = Paths.get(TEMPLATE_DIRECTORY, name);
+        Files.createDirectories(directory);
+
+        // transferTo(File) goes through Part.write, which renames a part that is already on disk.
+        // The Path overload would stream a copy instead
+        Path uploadFile = directory.resolve("upload-" + UUID.randomUUID() + ".tmp").toAbsolutePath();
+        try {
+            file.transferTo(uploadFile.toFile());
+            UploadedFile upload = hashFile(uploadFile);
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                try {
+                    return saveVersion(name, uploadFile, upload);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Files.deleteIfExists(uploadFile);
+        }
+    }
+
+    private Template saveVersion(String name, Path uploadFile, UploadedFile upload) throws IOException {
+        // Uploads of one template run one at a time, so they allocate distinct versions and never
+        // remove a version file another upload relies on
+        templateRepository.lockName(name);
+        Template template = Optional.ofNullable(templateRepository.findByName(name)).orElseGet(Template::new);
+
+        // Version files are named by their content and never overwritten
+        String storagePath = TEMPLATE_DIRECTORY + "/" + name + "/" + upload.contentHash() + ".html";
+        publishVersionFile(name, upload.contentHash(), uploadFile, Paths.get(storagePath));
+        if (upload.contentHash().equals(template.getContentHash())) {
+            // Same content as the current version, whose file is now in place again if it went missing
+            return template;
         }
 
-        // Define the file path
-        String filePath = directoryPath + "/" + name + ".html";
-        File file = new File(filePath);
+        TemplateVersion version = new TemplateVersion();
+        version.setTemplateName(name);
+        version.setVersion(templateVersionRepository.findFirstByTemplateNameOrderByVersionDesc(name)
+                .map(latest -> latest.getVersion() + 1)
+                .orElse(1));
+        version.setContentHash(upload.contentHash());
+        version.setSizeBytes(upload.size());
+        version.setStoragePath(storagePath);
+        version.setCreatedAt(LocalDateTime.now());
+        templateVersionRepository.save(version);
+
+        // Save template metadata in the database, pointing it at the new version
+        template.setName(name);
+        applyVersion(template, version);
+        return templateRepository.saveAndFlush(template);
+    }
+
+    /**
+     * Lists every version of a template, newest first.
+     *
+     * @param name The name of the template.
+     * @return The versions of the template.
+     */
+    public List<TemplateVersion> getTemplateVersions(String name) {
+        return templateVersionRepository.findByTemplateNameOrderByVersionDesc(name);
+    }
+
+    /**
+     * Makes an existing version the current version of a template, for example to roll back an upload.
+     * Only the template row changes, so renders switch over atomically.
+     *
+     * @param name The name of the template.
+     * @param versionNumber The version to activate.
+     * @return An Optional containing the updated Template, or empty if the template or version does not exist.
+     */
+    @Transactional
+    @CacheEvict(value = "templates", key = "#name")
+    public Optional<Template> activateVersion(String name, Integer versionNumber) {
+        templateRepository.lockName(name);
+        Template template = templateRepository.findByName(name);
+        if (template == null) {
+            return Optional.empty();
+        }
+        return templateVersionRepository.findByTemplateNameAndVersion(name, versionNumber)
+                .map(version -> {
+                    applyVersion(template, version);
+                    return templateRepository.save(template);
+                });
+    }
+
+    private static void applyVersion(Template template, TemplateVersion version) {
+        template.setCurrentVersion(version.getVersion());
+        template.setContentHash(version.getContentHash());
+        template.setSizeBytes(version.getSizeBytes());
+        template.setFirebaseUrl(version.getStoragePath()); // Update this to reflect the local file path
+    }
 
-        // Save the file to the server
-        try (FileOutputStream outputStream = new FileOutputStream(file)) {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = templateStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
+    /**
+     * Computes the SHA-256 hash of an uploaded file in a single read, enforcing the upload size limit
+     * for uploads whose size was not known up front. As the upload was renamed into place, this is
+     * the only pass over its bytes.
+     */
+    private UploadedFile hashFile(Path file) throws IOException {
+        MessageDigest digest = HashUtils.newSha256();
+        ByteBuffer buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+        long size = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                size += buffer.remaining();
+                if (size > maxUploadSize.toBytes()) {
+                    throw new MaxUploadSizeExceededException(maxUploadSize.toBytes());
+                }
+                digest.update(buffer);
+                buffer.clear();
             }
+        }
+        return new UploadedFile(HashUtils.toHex(digest.digest()), size);
+    }
+
+    /**
+     * Moves an uploaded file into place as an immutable version file, unless a file with the same
+     * content is already there. If the transaction rolls back, a file created by this upload is removed
+     * again unless a committed version references it.
+     */
+    private void publishVersionFile(String name, String contentHash, Path uploadFile, Path versionFile)
+            throws IOException {
+        if (Files.exists(versionFile)) {
+            // An earlier version had the same content
+            Files.deleteIfExists(uploadFile);
+            return;
+        }
+        try {
+            Files.move(uploadFile, versionFile, StandardCopyOption.ATOMIC_MOVE);
         } catch (IOException e) {
-            e.printStackTrace();
-            // Handle the exception appropriately
+            Files.deleteIfExists(uploadFile);
+            throw e;
         }
 
-        // Save template metadata in the database
-        Template template = new Template();
-        template.setName(name);
-        template.setFirebaseUrl(filePath); // Update this to reflect the local file path
-        return templateRepository.save(template);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    removeUnreferencedVersionFile(name, contentHash, versionFile);
+                }
+            }
+        });
     }
 
     /**
-     * Retrieves a template by its name from the database.
+     * Removes the file of a rolled back upload. This runs after the upload released its lock, so it
+     * takes the lock again and keeps the file if a version committed since then references it.
+     */
+    private void removeUnreferencedVersionFile(String name, String contentHash, Path versionFile) {
+        TransactionTemplate cleanup = new TransactionTemplate(transactionManager);
+        cleanup.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            cleanup.executeWithoutResult(status -> {
+                templateRepository.lockName(name);
+                if (templateVersionRepository.existsByTemplateNameAndContentHash(name, contentHash)) {
+                    return;
+                }
+                try {
+                    Files.deleteIfExists(versionFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Failed to remove template file {} of a rolled back upload", versionFile, e);
+        }
+    }
+
+    private static void validateTemplateName(String name) {
+        if (name == null || !TEMPLATE_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid template name: " + name);
+        }
+    }
+
+    /**
+     * Retrieves a template by its name, reading through to the database on a cache miss. Unknown names
+     * are not cached, so requests for made up names cannot fill the cache.
      *
      * @param name The name of the template to retrieve.
      * @return An Optional containing the Template if found, or empty if not found.
      */
+    @Cacheable(value = "templates", key = "#name", unless = "#result == null")
     public Optional<Template> getTemplateByName(String name) {
         return Optional.ofNullable(templateRepository.findByName(name));
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the content of a template, reading it from local storage or Firebase on a cache miss.
+     * Content is cached per version, so uploading a template leaves the cached content of every other
+     * template and version in place.
+     *
+     * @param template The template whose content to retrieve.
+     * @return The template content.
+     * @throws IOException If there is an error reading the template.
+     */
+    @Cacheable(value = "templateContents", key = "#template.contentHash ?: #template.firebaseUrl")
+    public String getTemplateContent(Template template) throws IOException {
+        String location = template.getFirebaseUrl();
+        InputStream templateStream = location.startsWith("http://") || location.startsWith("https://")
+                ? new ByteArrayInputStream(firebaseService.downloadFromFirebase(location))
+                : new FileInputStream(location);
+        try (templateStream) {
+            return TemplateUtils.readTemplate(templateStream);
+        }
+    }
+
+    private record UploadedFile(String contentHash, long size) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.models.Template;
+import com.turnquest.reportservice.repository.TemplateRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads template metadata and content into the caches and prepares and parses every template at startup.
+ * Application runners complete before the application is marked ready to accept traffic, so the
+ * first requests after a deploy don't pay for cold caches.
+ */
+@Slf4j
+@Component
+public class TemplateWarmup implements ApplicationRunner {
+
+    private final TemplateRepository templateRepository;
+    private final TemplateServiceImpl templateService;
+    private final TemplateRenderer templateRenderer;
+    private final boolean enabled;
+
+    public TemplateWarmup(TemplateRepository templateRepository,
+                          TemplateServiceImpl templateService,
+                          TemplateRenderer templateRenderer,
+                          @Value("${reports.templates.warm-up:true}") boolean enabled) {
+        this.templateRepository = templateRepository;
+        this.templateService = templateService;
+        this.templateRenderer = templateRenderer;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        int warmed = 0;
+        for (Template template : templateRepository.findAll()) {
+            try {
+                // Goes through the cache so the metadata is stored for later lookups
+                templateService.getTemplateByName(template.getName());
+                String htmlContent = templateService.getTemplateContent(template);
+                templateRenderer.warmUp(template.getContentHash(), htmlContent);
+                warmed++;
+            } catch (Exception e) {
+                log.warn("Failed to warm up template {}", template.getName(), e);
+            }
+        }
+        log.info("Warmed up {} templates in {} ms", warmed, (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,149 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.util.HashUtils;
+import com.turnquest.reportservice.util.TemplateUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fetches templates from URLs through the shared HttpClient. Fetched templates are cached and
+ * revalidated with If-None-Match / If-Modified-Since, and the number of concurrent requests to a
+ * single host is limited so a slow template host cannot tie up every request thread.
+ */
+@Service
+public class UrlTemplateFetcher {
+
+    private static final int MAX_CACHED_TEMPLATES = 256;
+
+    private final HttpClient httpClient;
+    private final Duration readTimeout;
+    private final int maxConcurrentPerHost;
+
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+    private final Map<String, FetchedTemplate> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, FetchedTemplate> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            });
+
+    public UrlTemplateFetcher(HttpClient httpClient,
+                              @Value("${reports.url-templates.read-timeout:PT30S}") Duration readTimeout,
+                              @Value("${reports.url-templates.max-concurrent-per-host:8}") int maxConcurrentPerHost) {
+        this.httpClient = httpClient;
+        this.readTimeout = readTimeout;
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+    }
+
+    /**
+     * Fetches a template from a URL, revalidating a previously fetched copy instead of downloading it again.
+     *
+     * @param url The http or https URL of the template.
+     * @return The fetched template content together with a key identifying that exact content.
+     * @throws IOException If the template could not be fetched within the read timeout.
+     * @throws IllegalArgumentException If the URL is not an http or https URL.
+     */
+    public FetchedTemplate fetch(String url) throws IOException {
+        URI uri = URI.create(url);
+        String scheme = uri.getScheme();
+        if (uri.getHost() == null || !("http".equalsIgnoreCase(scheme) || "https".equalsIgnoreCase(scheme))) {
+            throw new IllegalArgumentException("Unsupported template URL: " + url);
+        }
+
+        FetchedTemplate cached = cache.get(url);
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .GET();
+        if (cached != null && cached.eTag() != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, cached.eTag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            request.header(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+        }
+
+        HttpResponse<byte[]> response = send(uri.getHost(), request.build());
+        if (response.statusCode() == 304 && cached != null) {
+            return cached;
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("Failed to fetch template from " + url + ": HTTP " + response.statusCode());
+        }
+
+        byte[] body = response.body();
+        FetchedTemplate fetched = new FetchedTemplate(
+                HashUtils.sha256Hex(body),
+                TemplateUtils.readTemplate(new ByteArrayInputStream(body)),
+                response.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+                response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null));
+        if (fetched.eTag() != null || fetched.lastModified() != null) {
+            cache.put(url, fetched);
+        }
+        return fetched;
+    }
+
+    /**
+     * Sends a request within the per-host concurrency limit. The read timeout bounds the whole
+     * exchange, including the body, not just the arrival of the response headers.
+     */
+    private HttpResponse<byte[]> send(String host, HttpRequest request) throws IOException {
+        Semaphore permits = hostPermits.computeIfAbsent(host.toLowerCase(), key -> new Semaphore(maxConcurrentPerHost));
+        long deadline = System.nanoTime() + readTimeout.toNanos();
+        try {
+            if (!permits.tryAcquire(readTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new HttpTimeoutException("Too many concurrent template requests to " + host);
+            }
+            try {
+                CompletableFuture<HttpResponse<byte[]>> exchange =
+                        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+                try {
+                    return exchange.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    exchange.cancel(true);
+                    throw new HttpTimeoutException("Timed out fetching template from " + request.uri());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException ioException) {
+                        throw ioException;
+                    }
+                    throw new IOException("Failed to fetch template from " + request.uri(), e.getCause());
+                }
+            } finally {
+                permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while fetching template from " + request.uri());
+        }
+    }
+
+    /**
+     * A template fetched from a URL.
+     *
+     * @param key The SHA-256 hash of the template bytes, identifying this exact content.
+     * @param content The template content.
+     * @param eTag The ETag the server sent with the template, if any.
+     * @param lastModified The Last-Modified value the server sent with the template, if any.
+     */
+    public record FetchedTemplate(String key, String content, String eTag, String lastModified) {
+    }
+}
@@ -1,32 +1,30 @@
 package com.turnquest.reportservice.service.impl;
 
 import com.lowagie.text.DocumentException;
+import com.turnquest.reportservice.models.RenderedDocument;
 import com.turnquest.reportservice.models.Template;
 import com.turnquest.reportservice.service.WordGenerationService;
+import com.turnquest.reportservice.util.TemplateUtils;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.usermodel.XWPFParagraph;
 import org.apache.poi.xwpf.usermodel.XWPFRun;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
 import java.io.*;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @Service
 public class WordGenerationServiceImpl implements WordGenerationService {
-    private final TemplateEngine templateEngine;
+    private final TemplateRenderer templateRenderer;
     private final TemplateServiceImpl templateService;
-    private final FirebaseService firebaseService;
+    private final UrlTemplateFetcher urlTemplateFetcher;
 
-    public WordGenerationServiceImpl(TemplateEngine templateEngine,
+    public WordGenerationServiceImpl(TemplateRenderer templateRenderer,
                                       TemplateServiceImpl templateService,
-                                      FirebaseService firebaseService) {
-        this.templateEngine = templateEngine;
+                                      UrlTemplateFetcher urlTemplateFetcher) {
+        this.templateRenderer = templateRenderer;
         this.templateService = templateService;
-        this.firebaseService = firebaseService;
+        this.urlTemplateFetcher = urlTemplateFetcher;
     }
 
     /**
@@ -41,9 +39,21 @@ public class WordGenerationServiceImpl implements WordGenerationService {
     public byte[] generateWordFromTemplate(String templateName, Map<String, Object> data) throws IOException, DocumentException {
         Template template = templateService.getTemplateByName(templateName)
                 .orElseThrow(() -> new IllegalArgumentException("Template not found"));
+        // Pin the current version for the whole render
+        return generateWordFromTemplate(template, data);
+    }
 
-        InputStream templateStream = new ByteArrayInputStream(firebaseService.downloadFromFirebase(template.getFirebaseUrl()));
-        return generateWordFromTemplate(templateStream, data);
+    /**
+     * Generates a Word document based on a specific version of a stored template.
+     *
+     * @param template The template version to use for generating the Word document.
+     * @param data A map containing the data to populate the template.
+     * @return A byte array representing the generated Word document.
+     * @throws IOException If there is an error reading the template or writing the Word document.
+     * @throws DocumentException If there is an error processing the template or generating the Word document.
+     */
+    public byte[] generateWordFromTemplate(Template template, Map<String, Object> data) throws IOException, DocumentException {
+        return generateWordFromHtml(template.getContentHash(), templateService.getTemplateContent(template), data);
     }
 
     /**
@@ -69,8 +79,8 @@ public class WordGenerationServiceImpl implements WordGenerationService {
      * @throws DocumentException If there is an error processing the template or generating the Word document.
      */
     public byte[] generateWordFromUrl(String url, Map<String, Object> data) throws IOException, DocumentException {
-        InputStream inputStream = new URL(url).openStream();
-        return generateWordFromTemplate(inputStream, data);
+        UrlTemplateFetcher.FetchedTemplate template = urlTemplateFetcher.fetch(url);
+        return generateWordFromHtml(template.key(), template.content(), data);
     }
 
     /**
@@ -84,20 +94,51 @@ public class WordGenerationServiceImpl implements WordGenerationService {
      */
     public byte[] generateWordFromTemplate(InputStream templateStream, Map<String, Object> data) throws IOException {
         // Read template as string
-        String htmlContent = new BufferedReader(new InputStreamReader(templateStream, StandardCharsets.UTF_8))
-                .lines()
-                .reduce("", (accumulator, actual) -> accumulator + actual);
+        String htmlContent = TemplateUtils.readTemplate(templateStream);
+        return generateWordFromHtml(null, htmlContent, data);
+    }
 
-        // Process Thymeleaf template with data
-        Context context = new Context();
-        context.setVariables(data);
-        String processedHtml = templateEngine.process(htmlContent, context);
+    /**
+     * Helper method to generate a Word document from template content and data.
+     *
+     * @param templateKey The key of the template version being rendered, or null for ad-hoc templates.
+     * @param htmlContent The Thymeleaf template content to use for generating the Word document.
+     * @param data A map containing the data to populate the template.
+     * @return A byte array representing the generated Word document.
+     * @throws IOException If there is an error processing the template or writing the Word document.
+     */
+    private byte[] generateWordFromHtml(String templateKey, String htmlContent, Map<String, Object> data) throws IOException {
+        // Process Thymeleaf template with data, appending the output to the run in chunks
+        return writeDocument(runWriter -> templateRenderer.render(templateKey, htmlContent, data, runWriter));
+    }
+
+    /**
+     * Generates a Word document from a template that has already been rendered.
+     *
+     * @param document The rendered template output.
+     * @return A byte array representing the generated Word document.
+     * @throws IOException If there is an error writing the Word document.
+     */
+    public byte[] generateWordFromRendered(RenderedDocument document) throws IOException {
+        return writeDocument(document::writeTo);
+    }
 
+    /**
+     * Helper method to build a Word document holding rendered HTML as a single run of text.
+     *
+     * @param html Writes the rendered HTML to the run writer.
+     * @return A byte array representing the generated Word document.
+     * @throws IOException If there is an error writing the Word document.
+     */
+    private byte[] writeDocument(HtmlWriter html) throws IOException {
         // Create a new Word document
         XWPFDocument document = new XWPFDocument();
         XWPFParagraph paragraph = document.createParagraph();
         XWPFRun run = paragraph.createRun();
-        run.setText(processedHtml);
+
+        try (RunTextWriter runWriter = new RunTextWriter(run)) {
+            html.writeTo(runWriter);
+        }
 
         // Write the document to a byte array
         ByteArrayOutputStream wordStream = new ByteArrayOutputStream();
@@ -106,4 +147,55 @@ public class WordGenerationServiceImpl implements WordGenerationService {
 
         return wordStream.toByteArray();
     }
+
+    @FunctionalInterface
+    private interface HtmlWriter {
+        void writeTo(Writer writer) throws IOException;
+    }
+
+    /**
+     * Writer that appends its output to a run as a sequence of text elements, so the rendered
+     * document never has to be materialised as a single String.
+     */
+    private static final class RunTextWriter extends Writer {
+        private static final int CHUNK_SIZE = 8192;
+
+        private final XWPFRun run;
+        private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+
+        private RunTextWriter(XWPFRun run) {
+            this.run = run;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chunk.append(buffer, offset, length);
+            if (chunk.length() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void flush() {
+            // A trailing high surrogate waits for its low surrogate, so a pair never spans two text elements
+            int end = chunk.length();
+            if (end > 0 && Character.isHighSurrogate(chunk.charAt(end - 1))) {
+                end--;
+            }
+            appendText(end);
+        }
+
+        @Override
+        public void close() {
+            appendText(chunk.length());
+        }
+
+        private void appendText(int end) {
+            if (end > 0) {
+                // Each call adds another text element to the run
+                run.setText(chunk.substring(0, end));
+                chunk.delete(0, end);
+            }
+        }
+    }
 }
@@ -0,0 +1,56 @@
+package com.turnquest.reportservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public final class HashUtils {
+
+    private HashUtils() {
+    }
+
+    /**
+     * Creates a new SHA-256 digest.
+     *
+     * @return A fresh MessageDigest instance for SHA-256.
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM is required to ship SHA-256
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 hash of a byte array.
+     *
+     * @param content The bytes to hash.
+     * @return The lowercase hex representation of the hash.
+     */
+    public static String sha256Hex(byte[] content) {
+        return toHex(newSha256().digest(content));
+    }
+
+    /**
+     * Computes the hex encoded SHA-256 hash of the UTF-8 encoding of a string.
+     *
+     * @param content The string to hash.
+     * @return The lowercase hex representation of the hash.
+     */
+    public static String sha256Hex(String content) {
+        return sha256Hex(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encodes a finished digest as lowercase hex.
+     *
+     * @param digest The digest bytes.
+     * @return The lowercase hex representation of the digest.
+     */
+    public static String toHex(byte[] digest) {
+        return HexFormat.of().formatHex(digest);
+    }
+}
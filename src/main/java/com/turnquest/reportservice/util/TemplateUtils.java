@@ -0,0 +1,25 @@
+package com.turnquest.reportservice.util;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+
+public final class TemplateUtils {
+
+    private TemplateUtils() {
+    }
+
+    /**
+     * Reads a template from an InputStream into a single string.
+     *
+     * @param templateStream An InputStream containing the UTF-8 encoded template.
+     * @return The template content.
+     */
+    public static String readTemplate(InputStream templateStream) {
+        return new BufferedReader(new InputStreamReader(templateStream, StandardCharsets.UTF_8))
+                .lines()
+                .collect(Collectors.joining());
+    }
+}
@@ -0,0 +1,115 @@
+package com.turnquest.reportservice.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReportDataTest {
+
+    private static final String COLUMNS = "[{\"name\": \"id\", \"type\": \"long\"}, {\"name\": \"amount\", \"type\": \"number\"},"
+            + " {\"name\": \"paid\", \"type\": \"boolean\"}, {\"name\": \"label\", \"type\": \"string\"}]";
+    private static final String ROWS = "[[1, 12.5, true, \"first\"], [2, 3, false, null]]";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void bindsTableWithColumnsFirst() throws IOException {
+        ReportData data = read("{\"title\": \"Invoice\", \"items\": {\"@columns\": " + COLUMNS + ", \"@rows\": " + ROWS + "}}");
+
+        assertThat(data.get("title")).isEqualTo("Invoice");
+        assertExpectedTable(data.get("items"));
+    }
+
+    @Test
+    void bindsTableWithRowsFirst() throws IOException {
+        ReportData data = read("{\"items\": {\"@rows\": " + ROWS + ", \"@columns\": " + COLUMNS + "}, \"title\": \"Invoice\"}");
+
+        assertThat(data.get("title")).isEqualTo("Invoice");
+        assertExpectedTable(data.get("items"));
+    }
+
+    @Test
+    void bindsTablesNestedInPlainObjectsAndArrays() throws IOException {
+        ReportData data = read("{\"sections\": [{\"name\": \"a\", \"items\": {\"@columns\": " + COLUMNS
+                + ", \"@rows\": " + ROWS + "}}]}");
+
+        Map<?, ?> section = (Map<?, ?>) ((List<?>) data.get("sections")).get(0);
+        assertThat(section.get("name")).isEqualTo("a");
+        assertExpectedTable(section.get("items"));
+    }
+
+    @Test
+    void rejectsCellOfTheWrongType() {
+        assertMismatch("{\"items\": {\"@columns\": [{\"name\": \"id\", \"type\": \"long\"}], \"@rows\": [[\"one\"]]}}");
+        assertMismatch("{\"items\": {\"@rows\": [[1.5]], \"@columns\": [{\"name\": \"id\", \"type\": \"long\"}]}}");
+    }
+
+    @Test
+    void rejectsRowsWithTooFewOrTooManyValues() {
+        assertMismatch("{\"items\": {\"@columns\": " + COLUMNS + ", \"@rows\": [[1, 12.5, true]]}}");
+        assertMismatch("{\"items\": {\"@columns\": " + COLUMNS + ", \"@rows\": [[1, 12.5, true, \"a\", \"b\"]]}}");
+    }
+
+    @Test
+    void rejectsTableFieldsMixedWithOtherFields() {
+        assertMismatch("{\"items\": {\"name\": \"a\", \"@rows\": " + ROWS + "}}");
+        assertMismatch("{\"items\": {\"@columns\": " + COLUMNS + ", \"name\": \"a\"}}");
+        assertMismatch("{\"items\": {\"@columns\": " + COLUMNS + ", \"@rows\": " + ROWS + ", \"name\": \"a\"}}");
+        assertMismatch("{\"items\": {\"@rows\": " + ROWS + ", \"@columns\": " + COLUMNS + ", \"name\": \"a\"}}");
+        assertMismatch("{\"@columns\": " + COLUMNS + ", \"@rows\": " + ROWS + "}");
+    }
+
+    @Test
+    void rejectsUnknownColumnType() {
+        assertMismatch("{\"items\": {\"@columns\": [{\"name\": \"when\", \"type\": \"date\"}], \"@rows\": []}}");
+    }
+
+    @Test
+    void binaryFormatsBindTheSameTable() throws IOException {
+        ReportData json = read("{\"items\": {\"@columns\": " + COLUMNS + ", \"@rows\": " + ROWS + "}}");
+        Object payload = objectMapper.readValue(
+                "{\"items\": {\"@columns\": " + COLUMNS + ", \"@rows\": " + ROWS + "}}", Map.class);
+
+        for (ObjectMapper binaryMapper : List.of(new CBORMapper(), new SmileMapper())) {
+            ReportData binary = binaryMapper.readValue(binaryMapper.writeValueAsBytes(payload), ReportData.class);
+
+            RowTable table = (RowTable) binary.get("items");
+            assertThat(table.getColumns()).isEqualTo(((RowTable) json.get("items")).getColumns());
+            assertThat(table).isEqualTo(json.get("items"));
+        }
+    }
+
+    private ReportData read(String json) throws IOException {
+        return objectMapper.readValue(json, ReportData.class);
+    }
+
+    private void assertMismatch(String json) {
+        assertThatThrownBy(() -> read(json)).isInstanceOf(MismatchedInputException.class);
+    }
+
+    private static void assertExpectedTable(Object value) {
+        assertThat(value).isInstanceOf(RowTable.class);
+        RowTable table = (RowTable) value;
+        assertThat(table.getColumns()).containsExactly(
+                new RowTable.Column("id", RowTable.ColumnType.LONG),
+                new RowTable.Column("amount", RowTable.ColumnType.DOUBLE),
+                new RowTable.Column("paid", RowTable.ColumnType.BOOLEAN),
+                new RowTable.Column("label", RowTable.ColumnType.STRING));
+        assertThat(table).hasSize(2);
+        assertThat(Arrays.asList(table.getValue(0, 0), table.getValue(0, 1), table.getValue(0, 2), table.getValue(0, 3)))
+                .containsExactly(1L, 12.5, true, "first");
+        assertThat(Arrays.asList(table.getValue(1, 0), table.getValue(1, 1), table.getValue(1, 2), table.getValue(1, 3)))
+                .containsExactly(2L, 3.0, false, null);
+        assertThat(table.get(0)).containsEntry("label", "first");
+    }
+}
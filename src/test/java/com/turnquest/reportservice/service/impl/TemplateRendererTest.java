@@ -0,0 +1,144 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.turnquest.reportservice.config.ThymeleafConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TemplateRendererTest {
+
+    private static final Map<String, Object> DATA = Map.of(
+            "name", "Ada",
+            "items", List.of("first", "second"));
+
+    private TemplateEngine templateEngine;
+    private ExecutorService renderExecutor;
+    private TemplateRenderer templateRenderer;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = new ThymeleafConfig().templateEngine();
+        renderExecutor = Executors.newCachedThreadPool();
+        templateRenderer = new TemplateRenderer(templateEngine, renderExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        renderExecutor.shutdownNow();
+    }
+
+    @Test
+    void splicesMarkedElementsAsStaticFragments() {
+        String html = "<html><body><div data-static=\"true\"><h1>Invoice</h1></div>"
+                + "<p th:text=\"${name}\">name</p></body></html>";
+
+        TemplateRenderer.PreparedTemplate prepared = templateRenderer.prepare(null, html);
+
+        assertThat(prepared.staticFragments()).containsExactly("<div data-static=\"true\"><h1>Invoice</h1></div>");
+        assertThat(prepared.source())
+                .doesNotContain("Invoice")
+                .contains("${" + TemplateRenderer.STATIC_FRAGMENTS_VARIABLE + "[0]}");
+        assertRendersLikePlainProcess(html);
+    }
+
+    @Test
+    void acceptsEveryDataStaticSpelling() {
+        String html = "<div data-static='true'>a</div><div data-static>b</div><div data-static=true>c</div>"
+                + "<div data-static=\"false\">d</div><p th:text=\"${name}\">name</p>";
+
+        TemplateRenderer.PreparedTemplate prepared = templateRenderer.prepare(null, html);
+
+        assertThat(prepared.staticFragments()).containsExactly(
+                "<div data-static='true'>a</div>", "<div data-static>b</div>", "<div data-static=true>c</div>");
+        assertRendersLikePlainProcess(html);
+    }
+
+    @Test
+    void keepsNestedElementsWithTheSameNameInsideTheFragment() {
+        String html = "<div data-static=\"true\"><div>one</div><div><div>two</div></div></div>"
+                + "<div th:text=\"${name}\">name</div>";
+
+        TemplateRenderer.PreparedTemplate prepared = templateRenderer.prepare(null, html);
+
+        assertThat(prepared.staticFragments())
+                .containsExactly("<div data-static=\"true\"><div>one</div><div><div>two</div></div></div>");
+        assertThat(prepared.source()).contains("<div th:text=\"${name}\">name</div>");
+        assertRendersLikePlainProcess(html);
+    }
+
+    @Test
+    void skipsMarkedElementsNestedInsideAStaticFragment() {
+        String html = "<section data-static=\"true\"><div data-static=\"true\">inner</div><style>p { color: red; }</style>"
+                + "</section><p th:text=\"${name}\">name</p>";
+
+        TemplateRenderer.PreparedTemplate prepared = templateRenderer.prepare(null, html);
+
+        assertThat(prepared.staticFragments()).hasSize(1);
+        assertThat(prepared.staticFragments().get(0)).startsWith("<section").endsWith("</section>");
+        assertRendersLikePlainProcess(html);
+    }
+
+    @Test
+    void treatsOnlyStyleAndScriptWithoutThymeleafMarkupAsStatic() {
+        String html = "<style>p { color: red; }</style>"
+                + "<style th:inline=\"css\">p { color: [[${name}]]; }</style>"
+                + "<script>var total = 1;</script>"
+                + "<script th:inline=\"javascript\">var name = [[${name}]];</script>"
+                + "<ul><li th:each=\"item : ${items}\" th:text=\"${item}\">item</li></ul>";
+
+        TemplateRenderer.PreparedTemplate prepared = templateRenderer.prepare(null, html);
+
+        assertThat(prepared.staticFragments())
+                .containsExactly("<style>p { color: red; }</style>", "<script>var total = 1;</script>");
+        assertRendersLikePlainProcess(html);
+    }
+
+    @Test
+    void findsTheClosingTagAfterTextThatChangesLengthWhenLowerCased() {
+        // Lower casing turns each of these into two chars
+        String html = "<p>" + "\u0130".repeat(9) + "</p><STYLE>p { color: red; }</Style>"
+                + "<table><tr th:each=\"item : ${items}\"><td th:text=\"${item}\">item</td></tr></table>";
+
+        TemplateRenderer.PreparedTemplate prepared = templateRenderer.prepare(null, html);
+
+        assertThat(prepared.staticFragments()).containsExactly("<STYLE>p { color: red; }</Style>");
+        assertRendersLikePlainProcess(html);
+    }
+
+    @Test
+    void pipedRenderMatchesPlainProcess() throws IOException {
+        String html = "<div data-static=\"true\"><h1>Report</h1></div>"
+                + "<ul><li th:each=\"item : ${items}\" th:text=\"${item}\">item</li></ul>";
+        AtomicReference<String> rendered = new AtomicReference<>();
+
+        templateRenderer.renderPiped(null, html, DATA,
+                renderedHtml -> rendered.set(new String(renderedHtml.readAllBytes(), StandardCharsets.UTF_8)));
+
+        assertThat(rendered.get()).isEqualTo(plainProcess(html));
+    }
+
+    private void assertRendersLikePlainProcess(String html) {
+        StringWriter writer = new StringWriter();
+        templateRenderer.render(null, html, DATA, writer);
+        assertThat(writer.toString()).isEqualTo(plainProcess(html));
+    }
+
+    private String plainProcess(String html) {
+        Context context = new Context();
+        context.setVariables(DATA);
+        return templateEngine.process(html, context);
+    }
+}
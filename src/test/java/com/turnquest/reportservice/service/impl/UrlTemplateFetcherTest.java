@@ -0,0 +1,95 @@
+package com.turnquest.reportservice.service.impl;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UrlTemplateFetcherTest {
+
+    private static final String TEMPLATE = "<p th:text=\"${name}\">name</p>";
+    private static final String ETAG = "\"v1\"";
+
+    private HttpServer server;
+    private UrlTemplateFetcher fetcher;
+    private final AtomicInteger fullResponses = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/template.html", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = TEMPLATE.getBytes(StandardCharsets.UTF_8);
+            fullResponses.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/slow.html", exchange -> {
+            try {
+                Thread.sleep(2_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(1))
+                .build();
+        fetcher = new UrlTemplateFetcher(httpClient, Duration.ofMillis(500), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void revalidatesCachedTemplateWithETag() throws IOException {
+        UrlTemplateFetcher.FetchedTemplate first = fetcher.fetch(url("/template.html"));
+        UrlTemplateFetcher.FetchedTemplate second = fetcher.fetch(url("/template.html"));
+
+        assertThat(first.content()).isEqualTo(TEMPLATE);
+        assertThat(second).isEqualTo(first);
+        assertThat(fullResponses).hasValue(1);
+    }
+
+    @Test
+    void timesOutOnSlowHost() {
+        assertThatThrownBy(() -> fetcher.fetch(url("/slow.html")))
+                .isInstanceOf(HttpTimeoutException.class);
+    }
+
+    @Test
+    void rejectsNonHttpUrls() {
+        assertThatThrownBy(() -> fetcher.fetch("file:///etc/passwd"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+}